@@ -0,0 +1,83 @@
+package org.swiftbotsample.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.swiftbotsample.cqrs.core.ButtonMask;
+import org.swiftbotsample.cqrs.core.Command;
+import org.swiftbotsample.cqrs.core.CommandRegistry;
+import swiftbot.Button;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Press-to-command resolution: the old HashSet-keyed HashMap lookup versus the ButtonMask array table.
+ * Every invocation resolves all 16 combinations, hits and misses alike.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ButtonLookupBenchmark {
+    private CommandRegistry registry;
+    private Map<Set<Button>, Class<? extends Command>> buttonCommandMap;
+
+    @Setup
+    public void setUp() {
+        registry = new CommandRegistry("org.swiftbotsample.app");
+
+        //Rebuild the map the registry used before the mask table
+        buttonCommandMap = new HashMap<>();
+        for (int mask = 0; mask < ButtonMask.COMBINATIONS; mask++) {
+            Class<? extends Command> commandClass = registry.getCommandForMask(mask);
+            if (commandClass != null) {
+                buttonCommandMap.put(pressedButtons(mask), commandClass);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ButtonMask.COMBINATIONS)
+    public int hashSetLookup() {
+        int found = 0;
+        for (int mask = 0; mask < ButtonMask.COMBINATIONS; mask++) {
+            if (buttonCommandMap.get(pressedButtons(mask)) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ButtonMask.COMBINATIONS)
+    public int maskLookup() {
+        int found = 0;
+        for (int mask = 0; mask < ButtonMask.COMBINATIONS; mask++) {
+            int pressed = 0;
+            for (int i = 0; i < ButtonMask.BUTTON_COUNT; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    pressed |= ButtonMask.of(ButtonMask.buttonAt(i));
+                }
+            }
+            if (registry.getCommandForMask(pressed) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    //Allocates a fresh set per press, as ButtonListener.getPressedButtonsWithinTimeWindow did
+    private static Set<Button> pressedButtons(int mask) {
+        Set<Button> buttons = new HashSet<>();
+        for (int i = 0; i < ButtonMask.BUTTON_COUNT; i++) {
+            if ((mask & (1 << i)) != 0) {
+                buttons.add(ButtonMask.buttonAt(i));
+            }
+        }
+        return buttons;
+    }
+}
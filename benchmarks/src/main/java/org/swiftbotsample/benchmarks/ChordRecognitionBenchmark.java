@@ -0,0 +1,74 @@
+package org.swiftbotsample.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.swiftbotsample.app.ButtonListener;
+import org.swiftbotsample.app.ChordRecognizer;
+import org.swiftbotsample.app.hardware.BotHardware;
+import org.swiftbotsample.app.hardware.SimulatedBot;
+import org.swiftbotsample.cqrs.core.ButtonMask;
+import org.swiftbotsample.cqrs.core.Command;
+import org.swiftbotsample.cqrs.core.CommandFactory;
+import org.swiftbotsample.cqrs.core.CommandRegistry;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Button decoding as the decoder thread runs it: a scripted mix of single presses, two-button chords and contact
+ * bounce fed through {@link ChordRecognizer} on a fake clock, each recognized chord resolved to a new command.
+ * Reported per press.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ChordRecognitionBenchmark {
+    private static final int PRESSES = 1024;
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final long DEBOUNCE_NANOS = TimeUnit.MILLISECONDS.toNanos(30);
+
+    private final int[] buttons = new int[PRESSES];
+    private final long[] gaps = new long[PRESSES];
+    private CommandRegistry registry;
+    private BotHardware bot;
+    private ChordRecognizer recognizer;
+    private long now;
+    private int dispatched;
+
+    @Setup
+    public void setUp() {
+        registry = new CommandRegistry("org.swiftbotsample.app");
+        bot = SimulatedBot.withDefaultArena(1);
+        boolean[] completeChords = ButtonListener.findCompleteChords(registry);
+        recognizer = new ChordRecognizer(() -> now, WINDOW_NANOS, DEBOUNCE_NANOS,
+                mask -> completeChords[mask], this::onChord);
+
+        //Bounce a few milliseconds after a press, a second button inside the window, or a pause that closes the chord
+        Random random = new Random(7);
+        for (int i = 0; i < PRESSES; i++) {
+            buttons[i] = random.nextInt(ButtonMask.BUTTON_COUNT);
+            int kind = random.nextInt(10);
+            gaps[i] = TimeUnit.MILLISECONDS.toNanos(kind < 2 ? 5 : kind < 6 ? 80 : 700);
+        }
+    }
+
+    private void onChord(int buttonMask, long latencyNanos) {
+        CommandFactory<? extends Command> factory = registry.getFactoryForMask(buttonMask);
+        if (factory != null && factory.create(bot) != null) {
+            dispatched++;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PRESSES)
+    public int recognize() {
+        for (int i = 0; i < PRESSES; i++) {
+            now += gaps[i];
+            recognizer.advance();
+            recognizer.onPress(buttons[i], now);
+        }
+        return dispatched;
+    }
+}
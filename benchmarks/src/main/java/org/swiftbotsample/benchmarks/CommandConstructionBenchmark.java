@@ -0,0 +1,51 @@
+package org.swiftbotsample.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.swiftbotsample.app.hardware.BotHardware;
+import org.swiftbotsample.cqrs.core.Command;
+import org.swiftbotsample.cqrs.core.CommandFactory;
+import org.swiftbotsample.cqrs.core.CommandRegistry;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-press command construction: reflective lookup and newInstance, as ButtonListener used to do,
+ * versus the factory CommandRegistry precompiles at startup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CommandConstructionBenchmark {
+    @Param({
+            "org.swiftbotsample.app.commands.types.CalibrateTurnsCommand",
+            "org.swiftbotsample.app.commands.types.CaptureImageCommand",
+            "org.swiftbotsample.app.commands.types.LightShowCommand",
+            "org.swiftbotsample.app.commands.types.NavigateObstaclesCommand",
+            "org.swiftbotsample.app.commands.types.WhackAMoleCommand"
+    })
+    public String commandClassName;
+
+    //Commands only hold on to the API, so no hardware is needed
+    private BotHardware api;
+    private Class<? extends Command> commandClass;
+    private CommandFactory<? extends Command> factory;
+
+    @Setup
+    public void setUp() throws ClassNotFoundException {
+        commandClass = Class.forName(commandClassName).asSubclass(Command.class);
+        factory = new CommandRegistry("org.swiftbotsample.app").getFactory(commandClass);
+    }
+
+    @Benchmark
+    public Command reflective() throws ReflectiveOperationException {
+        return commandClass.getDeclaredConstructor(BotHardware.class).newInstance(api);
+    }
+
+    @Benchmark
+    public Command precompiled() {
+        return factory.create(api);
+    }
+}
@@ -0,0 +1,60 @@
+package org.swiftbotsample.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.swiftbotsample.app.hardware.SimulatedBot;
+import org.swiftbotsample.benchmarks.dispatch.NoOpCommand;
+import org.swiftbotsample.cqrs.core.CancellationToken;
+import org.swiftbotsample.cqrs.core.CommandHandler;
+import org.swiftbotsample.cqrs.core.CommandIndex;
+import org.swiftbotsample.cqrs.core.CommandRegistry;
+import org.swiftbotsample.cqrs.core.MenuManager;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip of a command that does nothing: calling its handler directly versus
+ * {@link MenuManager#executeCommand} and waiting for the future, which adds the dispatcher thread hand-off,
+ * duration metrics and, with a subscriber, the started and completed events.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CommandDispatchBenchmark {
+    @Param({"false", "true"})
+    public boolean subscribed;
+
+    private MenuManager menuManager;
+    private CommandHandler<NoOpCommand> handler;
+    private NoOpCommand command;
+
+    @Setup
+    public void setUp() {
+        CommandRegistry registry = new CommandRegistry(CommandIndex.scan("org.swiftbotsample.benchmarks.dispatch"));
+        menuManager = new MenuManager(registry);
+        handler = registry.getHandler(NoOpCommand.class);
+        command = new NoOpCommand(SimulatedBot.withDefaultArena(1));
+        if (subscribed) {
+            menuManager.getNotificationSystem().subscribe(notification -> { });
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        menuManager.getDispatcher().shutdown();
+        menuManager.getNotificationSystem().shutdown();
+    }
+
+    @Benchmark
+    public void directHandler() throws InterruptedException, ExecutionException {
+        handler.handle(command, CancellationToken.create());
+    }
+
+    @Benchmark
+    public void executeCommand() {
+        menuManager.executeCommand(command).join();
+    }
+}
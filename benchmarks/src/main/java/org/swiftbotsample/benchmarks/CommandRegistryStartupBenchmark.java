@@ -0,0 +1,30 @@
+package org.swiftbotsample.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.swiftbotsample.cqrs.core.CommandIndex;
+import org.swiftbotsample.cqrs.core.CommandRegistry;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold-start cost of building a CommandRegistry from the generated index versus a runtime classpath scan.
+ * Each fork measures a single construction in a fresh JVM, which is what the bot pays on boot.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class CommandRegistryStartupBenchmark {
+    private static final String COMMAND_PACKAGE = "org.swiftbotsample.app";
+
+    @Benchmark
+    public CommandRegistry generatedIndex() {
+        return new CommandRegistry(CommandIndex.fromGeneratedIndex(COMMAND_PACKAGE, CommandIndex.class.getClassLoader()));
+    }
+
+    @Benchmark
+    public CommandRegistry classpathScan() {
+        return new CommandRegistry(CommandIndex.scan(COMMAND_PACKAGE));
+    }
+}
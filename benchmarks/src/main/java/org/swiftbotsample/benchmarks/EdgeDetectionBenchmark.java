@@ -0,0 +1,65 @@
+package org.swiftbotsample.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.swiftbotsample.app.vision.EdgeDetector;
+import org.swiftbotsample.app.vision.ParallelEdgeDetector;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Obstacle edge counting on a 480x480 grayscale frame: three getRGB calls per pixel, as the navigation handler
+ * used to do, versus the single pass over the byte raster, sequential and split into row bands on fork/join.
+ * Setup checks that all of them produce identical counts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class EdgeDetectionBenchmark {
+    private static final int THRESHOLD = 50;
+
+    private final ParallelEdgeDetector parallelDetector = new ParallelEdgeDetector();
+    private BufferedImage[] frames;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<BufferedImage> loaded = SampleFrames.load();
+        frames = loaded.toArray(new BufferedImage[0]);
+        for (BufferedImage frame : frames) {
+            int[] expected = EdgeDetector.countEdgesWithGetRGB(frame, THRESHOLD);
+            for (int[] actual : new int[][]{EdgeDetector.countEdges(frame, THRESHOLD), parallelDetector.countEdges(frame, THRESHOLD)}) {
+                if (!Arrays.equals(expected, actual)) {
+                    throw new IllegalStateException("Edge counts differ: " + Arrays.toString(expected) + " vs " + Arrays.toString(actual));
+                }
+            }
+        }
+    }
+
+    private BufferedImage nextFrame() {
+        BufferedImage frame = frames[next];
+        next = (next + 1) % frames.length;
+        return frame;
+    }
+
+    @Benchmark
+    public int[] getRGB() {
+        return EdgeDetector.countEdgesWithGetRGB(nextFrame(), THRESHOLD);
+    }
+
+    @Benchmark
+    public int[] directRaster() {
+        return EdgeDetector.countEdges(nextFrame(), THRESHOLD);
+    }
+
+    @Benchmark
+    public int[] forkJoinBands() {
+        return parallelDetector.countEdges(nextFrame(), THRESHOLD);
+    }
+}
@@ -0,0 +1,43 @@
+package org.swiftbotsample.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.swiftbotsample.app.stores.ImageStore;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serving {@code /image}: encoding a fresh capture to JPEG, as the first request after every capture does,
+ * versus returning the snapshot's cached bytes, as every later request does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ImageEncodingBenchmark {
+    private BufferedImage[] frames;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        frames = SampleFrames.load().toArray(new BufferedImage[0]);
+        ImageStore.setLastCapturedImage(frames[0]);
+        ImageStore.getSnapshot().getJpegBytes();
+    }
+
+    @Benchmark
+    public byte[] freshCapture() {
+        BufferedImage frame = frames[next];
+        next = (next + 1) % frames.length;
+        ImageStore.setLastCapturedImage(frame);
+        return ImageStore.getSnapshot().getJpegBytes();
+    }
+
+    @Benchmark
+    public byte[] cachedSnapshot() {
+        return ImageStore.getSnapshot().getJpegBytes();
+    }
+}
@@ -0,0 +1,69 @@
+package org.swiftbotsample.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.swiftbotsample.app.hardware.SimulatedBot;
+import org.swiftbotsample.app.hardware.UnderlightCache;
+import org.swiftbotsample.app.lights.AnimationPlayer;
+import org.swiftbotsample.app.lights.LightAnimation;
+import org.swiftbotsample.app.lights.LightEffects;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One frame of the light show against the simulated bot. The rainbow computed inline, with a color conversion and a
+ * new array per underlight as the handler used to do, versus each effect copied out of its precompiled animation,
+ * sent straight to the bot or through an {@link UnderlightCache}. Shows what a frame costs apart from its 20 ms slot.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class LightShowBenchmark {
+    private static final int STEPS = 100;
+
+    @Param({"chase", "rainbow", "wave"})
+    public String effect;
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private SimulatedBot bot;
+    private LightAnimation animation;
+    private AnimationPlayer player;
+    private int step;
+    private int frame;
+
+    @Setup
+    public void setUp() {
+        bot = SimulatedBot.withDefaultArena(1);
+        switch (effect) {
+            case "chase":
+                animation = LightEffects.chase(new int[]{255, 255, 0}, 1);
+                break;
+            case "wave":
+                animation = LightEffects.wave(1);
+                break;
+            default:
+                animation = LightEffects.rainbow(STEPS);
+                break;
+        }
+        player = new AnimationPlayer(cached ? new UnderlightCache(bot) : bot, 20);
+    }
+
+    @Benchmark
+    public void computedFrame() {
+        step = (step + 1) % STEPS;
+        for (int j = 0; j < LightAnimation.LIGHT_COUNT; j++) {
+            float hue = (float) ((step + j * (STEPS / LightAnimation.LIGHT_COUNT)) % STEPS) / STEPS;
+            bot.setUnderlight(LightAnimation.UNDERLIGHTS[j], LightEffects.hsvToRgb(hue, 1.0f, 1.0f));
+        }
+    }
+
+    @Benchmark
+    public void precompiledFrame() {
+        frame = (frame + 1) % animation.getFrameCount();
+        player.showFrame(animation, frame);
+    }
+}
@@ -0,0 +1,56 @@
+package org.swiftbotsample.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.swiftbotsample.app.vision.ObstacleDetector;
+import org.swiftbotsample.app.vision.ParallelEdgeDetector;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The navigation handler's camera check end to end: edge counting plus the left/centre/right classification,
+ * on one thread versus split into row bands on fork/join. Setup checks that both reach the same verdicts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ObstacleDetectionBenchmark {
+    private final ObstacleDetector sequentialDetector =
+            new ObstacleDetector(new ParallelEdgeDetector(ForkJoinPool.commonPool(), Integer.MAX_VALUE));
+    private final ObstacleDetector parallelDetector = new ObstacleDetector();
+    private BufferedImage[] frames;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        frames = SampleFrames.load().toArray(new BufferedImage[0]);
+        for (BufferedImage frame : frames) {
+            ObstacleDetector.Result expected = sequentialDetector.detect(frame);
+            ObstacleDetector.Result actual = parallelDetector.detect(frame);
+            if (expected.isObstacleDetected() != actual.isObstacleDetected() || expected.getDirection() != actual.getDirection()) {
+                throw new IllegalStateException("Detectors disagree on a frame");
+            }
+        }
+    }
+
+    private BufferedImage nextFrame() {
+        BufferedImage frame = frames[next];
+        next = (next + 1) % frames.length;
+        return frame;
+    }
+
+    @Benchmark
+    public ObstacleDetector.Result sequential() {
+        return sequentialDetector.detect(nextFrame());
+    }
+
+    @Benchmark
+    public ObstacleDetector.Result forkJoinBands() {
+        return parallelDetector.detect(nextFrame());
+    }
+}
@@ -0,0 +1,114 @@
+package org.swiftbotsample.benchmarks;
+
+import org.swiftbotsample.app.hardware.SimulatedBot;
+import swiftbot.ImageSize;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Camera frames for the vision benchmarks.
+ * Recorded frames are read from the directory named by the {@code swiftbot.frames} system property
+ * (for example stills saved from {@code /image}); {@code -Dswiftbot.frames=simulated} renders the simulator's
+ * default arena while approaching an obstacle; without it, deterministic synthetic scenes are generated.
+ */
+final class SampleFrames {
+    static final int SIZE = 480;
+    private static final int SYNTHETIC_FRAMES = 8;
+
+    private SampleFrames() {
+    }
+
+    /**
+     * @return 480x480 {@link BufferedImage#TYPE_BYTE_GRAY} frames, as the navigation handler receives them
+     */
+    static List<BufferedImage> load() throws IOException {
+        String directory = System.getProperty("swiftbot.frames");
+        if (directory == null) {
+            return synthetic();
+        }
+        return directory.equals("simulated") ? simulated() : loadRecorded(new File(directory));
+    }
+
+    private static List<BufferedImage> loadRecorded(File directory) throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.matches("(?i).*\\.(png|jpe?g|bmp)"));
+        if (files == null || files.length == 0) {
+            throw new IOException("No recorded frames in " + directory);
+        }
+        Arrays.sort(files);
+
+        List<BufferedImage> frames = new ArrayList<>();
+        for (File file : files) {
+            BufferedImage image = ImageIO.read(file);
+            if (image != null) {
+                frames.add(toGrayscale(image));
+            }
+        }
+        return frames;
+    }
+
+    //Wall, tiled floor and box-like obstacles with sensor noise, seeded so every run sees the same pixels
+    private static List<BufferedImage> synthetic() {
+        Random random = new Random(42);
+        List<BufferedImage> frames = new ArrayList<>();
+        for (int i = 0; i < SYNTHETIC_FRAMES; i++) {
+            BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = image.createGraphics();
+            graphics.setColor(new Color(90, 90, 90));
+            graphics.fillRect(0, 0, SIZE, SIZE / 2);
+            graphics.setColor(new Color(140, 130, 120));
+            graphics.fillRect(0, SIZE / 2, SIZE, SIZE / 2);
+            graphics.setColor(new Color(60, 55, 50));
+            for (int seam = SIZE / 2 + random.nextInt(40); seam < SIZE; seam += 60) {
+                graphics.drawLine(0, seam, SIZE, seam);
+            }
+            for (int obstacle = 0, count = 1 + random.nextInt(4); obstacle < count; obstacle++) {
+                int gray = 20 + random.nextInt(200);
+                graphics.setColor(new Color(gray, gray, gray));
+                int width = 40 + random.nextInt(160);
+                int height = 40 + random.nextInt(200);
+                graphics.fillRect(random.nextInt(SIZE - width), SIZE - height - random.nextInt(SIZE / 4), width, height);
+            }
+            graphics.dispose();
+
+            for (int y = 0; y < SIZE; y++) {
+                for (int x = 0; x < SIZE; x++) {
+                    int rgb = image.getRGB(x, y);
+                    int noise = (int) (random.nextGaussian() * 6);
+                    int value = Math.max(0, Math.min(255, ((rgb >> 16) & 0xFF) + noise));
+                    image.setRGB(x, y, (value << 16) | (value << 8) | value);
+                }
+            }
+            frames.add(toGrayscale(image));
+        }
+        return frames;
+    }
+
+    //Driving towards the first obstacle of the default arena, from open floor to almost touching it
+    private static List<BufferedImage> simulated() {
+        SimulatedBot bot = SimulatedBot.withDefaultArena(42);
+        bot.setCameraLatencyMillis(0);
+        List<BufferedImage> frames = new ArrayList<>();
+        for (int i = 0; i < SYNTHETIC_FRAMES; i++) {
+            bot.setPose(40 + i * 11, 100 - i, (i % 3 - 1) * 5);
+            frames.add(bot.takeGrayscaleStill(ImageSize.SQUARE_480x480));
+        }
+        return frames;
+    }
+
+    private static BufferedImage toGrayscale(BufferedImage image) {
+        BufferedImage gray = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = gray.createGraphics();
+        graphics.drawImage(image, 0, 0, SIZE, SIZE, null);
+        graphics.dispose();
+        return gray;
+    }
+}
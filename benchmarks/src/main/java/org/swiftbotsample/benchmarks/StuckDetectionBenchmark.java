@@ -0,0 +1,69 @@
+package org.swiftbotsample.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.swiftbotsample.app.vision.StuckDetector;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Comparing a new frame against the previous one: the navigation handler's former difference of every 10th pixel
+ * through getRGB, versus {@link StuckDetector} reducing the frame to a thumbnail signature and comparing signatures.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class StuckDetectionBenchmark {
+    private final StuckDetector stuckDetector = new StuckDetector();
+    private BufferedImage[] frames;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        frames = SampleFrames.load().toArray(new BufferedImage[0]);
+    }
+
+    private BufferedImage nextFrame() {
+        BufferedImage frame = frames[next];
+        next = (next + 1) % frames.length;
+        return frame;
+    }
+
+    @Benchmark
+    public double getRGBDifference() {
+        BufferedImage previous = frames[(next + frames.length - 1) % frames.length];
+        return calculateImageDifference(previous, nextFrame());
+    }
+
+    @Benchmark
+    public double thumbnailSignature() {
+        return stuckDetector.addFrame(nextFrame());
+    }
+
+    //The handler's implementation before StuckDetector, kept as the reference
+    private static double calculateImageDifference(BufferedImage img1, BufferedImage img2) {
+        int width = Math.min(img1.getWidth(), img2.getWidth());
+        int height = Math.min(img1.getHeight(), img2.getHeight());
+
+        double totalDifference = 0.0;
+        int numPixels = 0;
+
+        //Downsample the image for faster computation
+        int stepSize = 10;
+
+        for (int y = 0; y < height; y += stepSize) {
+            for (int x = 0; x < width; x += stepSize) {
+                int gray1 = (img1.getRGB(x, y) >> 16) & 0xFF;
+                int gray2 = (img2.getRGB(x, y) >> 16) & 0xFF;
+                totalDifference += Math.abs(gray1 - gray2);
+                numPixels++;
+            }
+        }
+
+        return totalDifference / numPixels;
+    }
+}
@@ -0,0 +1,22 @@
+package org.swiftbotsample.benchmarks.dispatch;
+
+import org.swiftbotsample.app.BotMenuState;
+import org.swiftbotsample.app.hardware.BotHardware;
+import org.swiftbotsample.cqrs.annotations.CommandAttribute;
+import org.swiftbotsample.cqrs.core.Command;
+
+/**
+ * Command without buttons or work, so dispatch overhead is all that gets measured.
+ */
+@CommandAttribute(
+        menu = BotMenuState.class,
+        ordinal = 0,
+        priority = 0
+)
+public class NoOpCommand implements Command {
+    public final BotHardware api;
+
+    public NoOpCommand(BotHardware api) {
+        this.api = api;
+    }
+}
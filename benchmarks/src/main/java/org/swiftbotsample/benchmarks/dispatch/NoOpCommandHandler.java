@@ -0,0 +1,10 @@
+package org.swiftbotsample.benchmarks.dispatch;
+
+import org.swiftbotsample.cqrs.core.CancellationToken;
+import org.swiftbotsample.cqrs.core.CommandHandler;
+
+public class NoOpCommandHandler extends CommandHandler<NoOpCommand> {
+    @Override
+    public void handle(NoOpCommand command, CancellationToken cancellation) {
+    }
+}
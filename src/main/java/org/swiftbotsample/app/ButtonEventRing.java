@@ -0,0 +1,70 @@
+package org.swiftbotsample.app;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, lock-free ring of timestamped button presses.
+ * Any number of button callbacks may offer concurrently; a single decoder thread polls.
+ */
+class ButtonEventRing {
+    private static final int EMPTY = 0;
+
+    private final int mask;
+    private final long[] timestamps;
+    //Button index + 1 once the slot is published, EMPTY once consumed
+    private final AtomicIntegerArray buttons;
+    private final AtomicLong head = new AtomicLong();
+    private volatile long tail;
+
+    private long polledTimestamp;
+
+    ButtonEventRing(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.timestamps = new long[capacity];
+        this.buttons = new AtomicIntegerArray(capacity);
+    }
+
+    /**
+     * Publishes a press. Never blocks; returns false if the ring is full and the press was dropped.
+     */
+    boolean offer(int buttonIndex, long timestamp) {
+        long sequence;
+        do {
+            sequence = head.get();
+            if (sequence - tail >= timestamps.length) {
+                return false;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+
+        int slot = (int) sequence & mask;
+        timestamps[slot] = timestamp;
+        buttons.set(slot, buttonIndex + 1); //Volatile write publishes the timestamp too
+        return true;
+    }
+
+    /**
+     * Takes the oldest press, or returns -1 if none is published yet.
+     * The press time is then available from {@link #polledTimestamp()}. Only the decoder thread may call this.
+     */
+    int poll() {
+        long sequence = tail;
+        int slot = (int) sequence & mask;
+        int button = buttons.get(slot);
+        if (button == EMPTY) {
+            return -1;
+        }
+
+        polledTimestamp = timestamps[slot];
+        buttons.set(slot, EMPTY);
+        tail = sequence + 1;
+        return button - 1;
+    }
+
+    long polledTimestamp() {
+        return polledTimestamp;
+    }
+}
@@ -1,86 +1,156 @@
 package org.swiftbotsample.app;
 
 import swiftbot.Button;
-import swiftbot.SwiftBotAPI;
+import org.swiftbotsample.app.hardware.BotHardware;
+import org.swiftbotsample.app.stores.ButtonBindingStore;
+import org.swiftbotsample.cqrs.core.ButtonMask;
+import org.swiftbotsample.cqrs.core.CommandFactory;
 import org.swiftbotsample.cqrs.core.CommandRegistry;
 import org.swiftbotsample.cqrs.core.MenuManager;
 import org.swiftbotsample.cqrs.core.Command;
+import org.swiftbotsample.cqrs.metrics.LatencyHistogram;
 
-import java.util.Set;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Turns button presses into commands.
+ * The SwiftBot callbacks only timestamp the press and push it onto a lock-free ring, so they return in microseconds;
+ * a single decoder thread feeds the presses to a {@link ChordRecognizer} and dispatches each recognized combination once.
+ */
 public class ButtonListener {
-    private final SwiftBotAPI swiftBot;
+    private final BotHardware swiftBot;
     private final CommandRegistry commandRegistry;
     private final MenuManager menuManager;
-    private final Map<Button, Boolean> buttonStates = new ConcurrentHashMap<>();
-    private final Map<Button, Long> buttonPressTimes = new ConcurrentHashMap<>();
+    private final ButtonEventRing pressEvents = new ButtonEventRing(64);
+    private final ChordRecognizer chordRecognizer;
+    private final LatencyHistogram pressToDispatchLatency;
+    private final Thread decoder;
     private static final long COMBINATION_TIME_WINDOW = 500; //milliseconds
+    private static final long DEBOUNCE_TIME = 30; //milliseconds
+    private static final Button[] BUTTONS = {Button.A, Button.B, Button.X, Button.Y};
 
-    public ButtonListener(SwiftBotAPI swiftBot, CommandRegistry commandRegistry, MenuManager menuManager) {
+    public ButtonListener(BotHardware swiftBot, CommandRegistry commandRegistry, MenuManager menuManager) {
+        this(swiftBot, commandRegistry, menuManager, COMBINATION_TIME_WINDOW, DEBOUNCE_TIME);
+    }
+
+    public ButtonListener(BotHardware swiftBot, CommandRegistry commandRegistry, MenuManager menuManager,
+                          long combinationWindowMillis, long debounceMillis) {
         this.swiftBot = swiftBot;
         this.commandRegistry = commandRegistry;
         this.menuManager = menuManager;
 
-        //Define the buttons manually
-        Button[] buttons = new Button[]{
-                Button.A,
-                Button.B,
-                Button.X,
-                Button.Y
-        };
-
-        //Initialize button states and enable buttons
-        for (Button button : buttons) {
-            buttonStates.put(button, false);
-            buttonPressTimes.put(button, 0L);
+        pressToDispatchLatency = menuManager.getMetrics().histogram("swiftbot_button_dispatch_latency_seconds",
+                "Time from the last press of a button combination until its command was dispatched.");
+
+        boolean[] completeChords = findCompleteChords(commandRegistry);
+        chordRecognizer = new ChordRecognizer(System::nanoTime,
+                TimeUnit.MILLISECONDS.toNanos(combinationWindowMillis),
+                TimeUnit.MILLISECONDS.toNanos(debounceMillis),
+                mask -> completeChords[mask],
+                this::onChord);
+
+        menuManager.getMetrics().counter("swiftbot_button_chords_total", "Button combinations recognized.",
+                chordRecognizer::getChordsRecognized);
+        menuManager.getMetrics().counter("swiftbot_button_presses_debounced_total", "Button presses ignored as contact bounce.",
+                chordRecognizer::getPressesDebounced);
+
+        decoder = new Thread(this::decodePresses, "button-decoder");
+        decoder.setDaemon(true);
+        decoder.start();
+
+        //Enable buttons, and again whenever a command that took them over ends
+        rebind();
+        ButtonBindingStore.setDefaultBinding(this::rebind);
+    }
+
+    /**
+     * Binds every button to this listener, replacing the callbacks of any command that used the buttons itself.
+     */
+    public void rebind() {
+        for (Button button : BUTTONS) {
             swiftBot.enableButton(button, () -> onButtonPressed(button));
         }
     }
 
-    public synchronized void onButtonPressed(Button button) {
-        buttonStates.put(button, true);
-        buttonPressTimes.put(button, System.currentTimeMillis());
-
-        //Slight delay to check for simultaneous button presses
-        try {
-            Thread.sleep(50); //Adjust as needed for your hardware
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+    /**
+     * Records the press and returns immediately; the decoder thread resolves the combination.
+     */
+    public void onButtonPressed(Button button) {
+        if (!pressEvents.offer(ButtonMask.indexOf(button), System.nanoTime())) {
+            System.out.println("Button event buffer full, dropped press of " + button);
         }
+        LockSupport.unpark(decoder);
+    }
 
-        Set<Button> pressedButtons = getPressedButtonsWithinTimeWindow();
-        Class<? extends Command> commandClass = commandRegistry.getCommandForButtons(pressedButtons);
+    //Decoder loop: drains the ring into the recognizer and sleeps until the open chord's window closes
+    private void decodePresses() {
+        while (!Thread.currentThread().isInterrupted()) {
+            int buttonIndex;
+            while ((buttonIndex = pressEvents.poll()) >= 0) {
+                chordRecognizer.onPress(buttonIndex, pressEvents.polledTimestamp());
+            }
 
-        if (commandClass != null) {
-            //Execute the command
-            try {
-                Command command = commandClass.getDeclaredConstructor(SwiftBotAPI.class).newInstance(swiftBot);
-                menuManager.executeCommand(command);
-            } catch (Exception e) {
-                e.printStackTrace();
+            long remaining = chordRecognizer.advance();
+            if (remaining == ChordRecognizer.IDLE) {
+                LockSupport.park(this);
+            } else {
+                LockSupport.parkNanos(this, remaining);
             }
         }
+    }
+
+    /**
+     * A combination is complete when it is bound to a command and no other bound combination extends it.
+     * @return complete flags indexed by {@link ButtonMask}
+     */
+    public static boolean[] findCompleteChords(CommandRegistry commandRegistry) {
+        boolean[] complete = new boolean[ButtonMask.COMBINATIONS];
+        for (int mask = 1; mask < ButtonMask.COMBINATIONS; mask++) {
+            if (commandRegistry.getCommandForMask(mask) == null) {
+                continue;
+            }
+            complete[mask] = true;
+            for (int other = 1; other < ButtonMask.COMBINATIONS; other++) {
+                if (other != mask && (other & mask) == mask && commandRegistry.getCommandForMask(other) != null) {
+                    complete[mask] = false;
+                    break;
+                }
+            }
+        }
+        return complete;
+    }
 
-        //Reset button state after handling
-        buttonStates.put(button, false);
+    private void onChord(int buttonMask, long recognitionLatencyNanos) {
+        long recognizedAt = System.nanoTime();
+        dispatch(buttonMask);
+        pressToDispatchLatency.record(recognitionLatencyNanos + (System.nanoTime() - recognizedAt));
     }
 
-    private Set<Button> getPressedButtonsWithinTimeWindow() {
-        long currentTime = System.currentTimeMillis();
-        Set<Button> pressedButtons = new HashSet<>();
-        for (Map.Entry<Button, Long> entry : buttonPressTimes.entrySet()) {
-            long pressTime = entry.getValue();
-            if ((currentTime - pressTime) <= COMBINATION_TIME_WINDOW) {
-                pressedButtons.add(entry.getKey());
+    private void dispatch(int pressedButtons) {
+        CommandFactory<? extends Command> commandFactory = commandRegistry.getFactoryForMask(pressedButtons);
+
+        if (commandFactory != null) {
+            //Execute the command
+            try {
+                Command command = commandFactory.create(swiftBot);
+                //Dispatch returns immediately, the handler runs on the dispatcher thread
+                menuManager.executeCommand(command).whenComplete((result, error) -> {
+                    if (error != null) {
+                        System.out.println(command.getClass().getSimpleName() + " did not complete: " + error.getMessage());
+                    }
+                });
+            } catch (Exception e) {
+                e.printStackTrace();
             }
         }
-        return pressedButtons;
     }
 
     public void simulateButtonPress(Button button) {
         onButtonPressed(button);
     }
-}
\ No newline at end of file
+
+    public ChordRecognizer getChordRecognizer() {
+        return chordRecognizer;
+    }
+}
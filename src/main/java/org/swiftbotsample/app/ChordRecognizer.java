@@ -0,0 +1,141 @@
+package org.swiftbotsample.app;
+
+import org.swiftbotsample.cqrs.core.ButtonMask;
+
+import java.util.function.IntPredicate;
+import java.util.function.LongSupplier;
+
+/**
+ * Groups button presses into chords on a monotonic clock.
+ * <p>
+ * A chord opens with its first press and closes when the chord window has elapsed, or earlier once the pressed buttons
+ * form a complete chord (one that no further press can extend). Each chord fires exactly once.
+ * Repeated presses of the same button within the debounce time are ignored, so contact bounce cannot start a new chord.
+ * <p>
+ * Not thread-safe: one thread feeds presses with {@link #onPress} and drives time with {@link #advance()}.
+ * The clock is injected so the recognizer can be driven by a fake clock and a scripted press sequence.
+ */
+public class ChordRecognizer {
+    /**
+     * Returned by {@link #advance()} when no chord is open.
+     */
+    public static final long IDLE = Long.MAX_VALUE;
+
+    /**
+     * Receives every recognized chord.
+     */
+    @FunctionalInterface
+    public interface ChordListener {
+        /**
+         * @param buttonMask the {@link ButtonMask} of the chord
+         * @param latencyNanos time from the chord's last accepted press until it was recognized
+         */
+        void onChord(int buttonMask, long latencyNanos);
+    }
+
+    private final LongSupplier clock;
+    private final long chordWindowNanos;
+    private final long debounceNanos;
+    private final IntPredicate isComplete;
+    private final ChordListener listener;
+
+    private final long[] lastAcceptedPress = new long[ButtonMask.BUTTON_COUNT];
+    private final boolean[] pressedBefore = new boolean[ButtonMask.BUTTON_COUNT];
+    private int pendingMask;
+    private long windowEnd;
+    private long lastPressTime;
+
+    //Written only by the feeding thread, volatile so statistics can be read from anywhere
+    private volatile long chordsRecognized;
+    private volatile long pressesDebounced;
+    private volatile long lastLatencyNanos;
+    private volatile long maxLatencyNanos;
+
+    /**
+     * @param clock monotonic time source in nanoseconds, normally {@code System::nanoTime}
+     * @param chordWindowNanos longest time a chord stays open after its first press
+     * @param debounceNanos presses of the same button closer together than this are ignored
+     * @param isComplete tells whether a mask is final and can fire before the window closes
+     */
+    public ChordRecognizer(LongSupplier clock, long chordWindowNanos, long debounceNanos,
+                           IntPredicate isComplete, ChordListener listener) {
+        this.clock = clock;
+        this.chordWindowNanos = chordWindowNanos;
+        this.debounceNanos = debounceNanos;
+        this.isComplete = isComplete;
+        this.listener = listener;
+    }
+
+    /**
+     * Feeds a press that happened at {@code pressTime}, as read from the same clock.
+     */
+    public void onPress(int buttonIndex, long pressTime) {
+        if (pressedBefore[buttonIndex] && pressTime - lastAcceptedPress[buttonIndex] < debounceNanos) {
+            pressesDebounced++;
+            return;
+        }
+        pressedBefore[buttonIndex] = true;
+        lastAcceptedPress[buttonIndex] = pressTime;
+
+        if (pendingMask != 0 && pressTime - windowEnd > 0) {
+            //Pressed after the window closed, so it belongs to the next chord
+            fire();
+        }
+        if (pendingMask == 0) {
+            windowEnd = pressTime + chordWindowNanos;
+        }
+
+        pendingMask |= ButtonMask.of(ButtonMask.buttonAt(buttonIndex));
+        lastPressTime = pressTime;
+
+        if (isComplete.test(pendingMask)) {
+            fire();
+        }
+    }
+
+    /**
+     * Closes the open chord if its window has elapsed.
+     * @return nanoseconds until the open chord's window closes, or {@link #IDLE} if no chord is open
+     */
+    public long advance() {
+        if (pendingMask == 0) {
+            return IDLE;
+        }
+
+        long remaining = windowEnd - clock.getAsLong();
+        if (remaining > 0) {
+            return remaining;
+        }
+
+        fire();
+        return IDLE;
+    }
+
+    private void fire() {
+        int mask = pendingMask;
+        pendingMask = 0;
+
+        long latency = clock.getAsLong() - lastPressTime;
+        lastLatencyNanos = latency;
+        maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+        chordsRecognized++;
+
+        listener.onChord(mask, latency);
+    }
+
+    public long getChordsRecognized() {
+        return chordsRecognized;
+    }
+
+    public long getPressesDebounced() {
+        return pressesDebounced;
+    }
+
+    public long getLastLatencyNanos() {
+        return lastLatencyNanos;
+    }
+
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+}
@@ -1,9 +1,16 @@
 package org.swiftbotsample.app;
 
 import fi.iki.elonen.NanoHTTPD;
+import org.swiftbotsample.app.camera.CameraStream;
+import org.swiftbotsample.app.camera.FrameBroker;
+import org.swiftbotsample.app.hardware.BotHardware;
+import org.swiftbotsample.app.hardware.SimulatedBot;
+import org.swiftbotsample.app.hardware.SwiftBotHardware;
+import org.swiftbotsample.app.hardware.UnderlightCache;
 import org.swiftbotsample.app.web.BotWebServer;
 import org.swiftbotsample.cqrs.core.CommandRegistry;
 import org.swiftbotsample.cqrs.core.MenuManager;
+import swiftbot.ImageSize;
 import swiftbot.SwiftBotAPI;
 
 import java.io.IOException;
@@ -11,21 +18,39 @@ import java.io.IOException;
 //SSH Maven Config: clean install exec:java
 
 public class Main {
+    private static final int STREAM_FRAMES_PER_SECOND = 5;
+
     public static void main(String[] args) throws InterruptedException, IOException {
-        SwiftBotAPI swiftBot = new SwiftBotAPI();
+        //-Dswiftbot.simulate=true runs against the in-process simulator instead of the robot
+        BotHardware hardware = Boolean.getBoolean("swiftbot.simulate")
+                ? SimulatedBot.withDefaultArena(Long.getLong("swiftbot.simulate.seed", 1L))
+                : new SwiftBotHardware(new SwiftBotAPI());
+
+        //Every underlight write goes through the cache, so writes that change nothing never reach the LED driver
+        UnderlightCache swiftBot = new UnderlightCache(hardware);
 
         //Dynamically get the package name
         String assemblyName = Main.class.getPackage().getName();
 
-        //Register all the commands
+        //Register all the commands once, the registry is shared by every component
         CommandRegistry registry = new CommandRegistry("org.swiftbotsample.app");
-        MenuManager menuManager = new MenuManager("org.swiftbotsample.app");
+        MenuManager menuManager = new MenuManager(registry);
+        menuManager.getMetrics().counter("swiftbot_underlight_writes_total", "Underlight updates sent to the hardware.",
+                swiftBot::getWritesSent);
+        menuManager.getMetrics().counter("swiftbot_underlight_writes_skipped_total", "Underlight updates dropped as unchanged.",
+                swiftBot::getWritesSkipped);
 
         //Initialize and start the button listener
         ButtonListener buttonListener = new ButtonListener(swiftBot, registry, menuManager);
 
+        //The camera is shared through one frame broker, the live stream only subscribes while someone is watching
+        //-Dswiftbot.camera.size=SQUARE_1080x1080 and -Dswiftbot.stream.fps=10 override the capture size and stream rate
+        ImageSize imageSize = ImageSize.valueOf(System.getProperty("swiftbot.camera.size", FrameBroker.DEFAULT_IMAGE_SIZE.name()));
+        FrameBroker frameBroker = FrameBroker.forApi(swiftBot, imageSize);
+        CameraStream cameraStream = new CameraStream(frameBroker, Integer.getInteger("swiftbot.stream.fps", STREAM_FRAMES_PER_SECOND));
+
         //Start the web server
-        BotWebServer webServer = new BotWebServer(8080, swiftBot, buttonListener, registry);
+        BotWebServer webServer = new BotWebServer(8080, swiftBot, buttonListener, registry, menuManager, frameBroker, cameraStream);
         webServer.start(NanoHTTPD.SOCKET_READ_TIMEOUT, false);
         System.out.println("Web server started on http://localhost:8080/");
 
@@ -0,0 +1,213 @@
+package org.swiftbotsample.app.camera;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live MJPEG stream of the camera.
+ * <p>
+ * While at least one viewer is open, a single producer thread subscribes to the {@link FrameBroker} at the stream's
+ * frame rate and turns each frame into a complete multipart part, shared by every viewer. Viewers always continue with
+ * the newest part, so a slow client skips frames instead of holding back the producer or the other viewers.
+ */
+public class CameraStream {
+    public static final String BOUNDARY = "swiftbotframe";
+    public static final String MIME_TYPE = "multipart/x-mixed-replace; boundary=" + BOUNDARY;
+
+    private static final long ERROR_BACKOFF = 1000; //milliseconds
+    private static final long FRAME_TIMEOUT = 10000; //milliseconds a viewer waits for a new frame before ending the stream
+
+    private final FrameBroker frameBroker;
+    private final long frameIntervalMillis;
+
+    //Guarded by frameLock
+    private final Object frameLock = new Object();
+    private Part latestPart;
+    private int viewerCount;
+    private Thread producer;
+
+    private volatile long framesStreamed;
+    private final AtomicLong framesSkipped = new AtomicLong();
+
+    public CameraStream(FrameBroker frameBroker, int framesPerSecond) {
+        if (framesPerSecond <= 0) {
+            throw new IllegalArgumentException("Frame rate must be positive: " + framesPerSecond);
+        }
+        this.frameBroker = frameBroker;
+        this.frameIntervalMillis = TimeUnit.SECONDS.toMillis(1) / framesPerSecond;
+    }
+
+    /**
+     * Opens a viewer, starting the producer if it is the first one.
+     * The returned stream yields multipart parts until it is closed.
+     */
+    public InputStream openViewer() {
+        synchronized (frameLock) {
+            viewerCount++;
+            if (producer == null) {
+                producer = new Thread(this::produceFrames, "camera-stream");
+                producer.setDaemon(true);
+                producer.start();
+            }
+        }
+        return new Viewer();
+    }
+
+    public int getViewerCount() {
+        synchronized (frameLock) {
+            return viewerCount;
+        }
+    }
+
+    public long getFramesStreamed() {
+        return framesStreamed;
+    }
+
+    /**
+     * Frames that some viewer never received because it was still sending an older one.
+     */
+    public long getFramesSkipped() {
+        return framesSkipped.get();
+    }
+
+    //Producer loop: runs until the last viewer closes
+    private void produceFrames() {
+        long sequence = 0;
+        try (FrameBroker.Subscription frames = frameBroker.subscribe(frameIntervalMillis, true)) {
+            while (true) {
+                synchronized (frameLock) {
+                    if (viewerCount == 0) {
+                        producer = null;
+                        latestPart = null;
+                        return;
+                    }
+                }
+
+                try (Frame frame = frames.awaitNext(ERROR_BACKOFF)) {
+                    if (frame == null) {
+                        continue;
+                    }
+                    Part part = new Part(++sequence, encodePart(frame.getJpegBytes()));
+                    synchronized (frameLock) {
+                        latestPart = part;
+                        frameLock.notifyAll();
+                    }
+                    framesStreamed++;
+                } catch (IOException | RuntimeException e) {
+                    e.printStackTrace();
+                    Thread.sleep(ERROR_BACKOFF);
+                }
+            }
+        } catch (InterruptedException e) {
+            synchronized (frameLock) {
+                producer = null;
+            }
+        }
+    }
+
+    private static byte[] encodePart(byte[] jpeg) throws IOException {
+        byte[] header = ("--" + BOUNDARY + "\r\n" +
+                "Content-Type: image/jpeg\r\n" +
+                "Content-Length: " + jpeg.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+        ByteArrayOutputStream part = new ByteArrayOutputStream(header.length + jpeg.length + 2);
+        part.write(header);
+        part.write(jpeg);
+        part.write('\r');
+        part.write('\n');
+        return part.toByteArray();
+    }
+
+    private static final class Part {
+        final long sequence;
+        final byte[] bytes;
+
+        Part(long sequence, byte[] bytes) {
+            this.sequence = sequence;
+            this.bytes = bytes;
+        }
+    }
+
+    //Reads shared frame parts; each viewer only tracks its position in the frame it is sending
+    private final class Viewer extends InputStream {
+        private byte[] buffer;
+        private int position;
+        private long lastSequence;
+        private boolean closed;
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.length - position);
+            System.arraycopy(buffer, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        private boolean fill() throws IOException {
+            if (buffer != null && position < buffer.length) {
+                return true;
+            }
+
+            Part part;
+            synchronized (frameLock) {
+                //Bounded so a stalled or stopped producer ends the stream instead of pinning the HTTP thread
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FRAME_TIMEOUT);
+                while (!closed && (latestPart == null || latestPart.sequence <= lastSequence)) {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) {
+                        close();
+                        return false;
+                    }
+                    try {
+                        frameLock.wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while waiting for a frame");
+                    }
+                }
+                if (closed) {
+                    return false;
+                }
+                part = latestPart;
+            }
+
+            if (lastSequence != 0 && part.sequence > lastSequence + 1) {
+                framesSkipped.addAndGet(part.sequence - lastSequence - 1);
+            }
+            lastSequence = part.sequence;
+            buffer = part.bytes;
+            position = 0;
+            return true;
+        }
+
+        @Override
+        public void close() {
+            synchronized (frameLock) {
+                if (!closed) {
+                    closed = true;
+                    viewerCount--;
+                    frameLock.notifyAll();
+                }
+            }
+        }
+    }
+}
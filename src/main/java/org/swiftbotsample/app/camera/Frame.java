@@ -0,0 +1,148 @@
+package org.swiftbotsample.app.camera;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A captured camera frame shared by every consumer of a {@link FrameBroker}.
+ * <p>
+ * Frames are reference counted: the broker holds one reference to the latest frame, and every frame handed to a
+ * consumer is retained for it. Consumers call {@link #release()} (or {@link #close()}, for try-with-resources) when done.
+ * Once the last reference is gone the image and its derived encodings are dropped, and further access fails fast.
+ * <p>
+ * The grayscale and JPEG forms are derived at most once per frame, by whichever consumer asks first.
+ */
+public final class Frame implements AutoCloseable {
+    private final long sequence;
+    private final long timestampNanos;
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private volatile BufferedImage image;
+    private volatile BufferedImage grayscale;
+    private volatile byte[] jpeg;
+
+    Frame(long sequence, long timestampNanos, BufferedImage image) {
+        this.sequence = sequence;
+        this.timestampNanos = timestampNanos;
+        this.image = image;
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            this.grayscale = image;
+        }
+    }
+
+    /**
+     * Increases with every capture of the broker.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Capture time on the {@link System#nanoTime()} clock.
+     */
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    /**
+     * The image as captured. Must not be modified.
+     */
+    public BufferedImage getImage() {
+        return checkAlive(image);
+    }
+
+    /**
+     * A {@link BufferedImage#TYPE_BYTE_GRAY} form of the image; the captured image itself if it already is grayscale.
+     */
+    public BufferedImage getGrayscale() {
+        BufferedImage gray = grayscale;
+        if (gray == null) {
+            synchronized (this) {
+                gray = grayscale;
+                if (gray == null) {
+                    BufferedImage source = getImage();
+                    gray = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+                    Graphics2D graphics = gray.createGraphics();
+                    graphics.drawImage(source, 0, 0, null);
+                    graphics.dispose();
+                    grayscale = gray;
+                }
+            }
+        }
+        return checkAlive(gray);
+    }
+
+    /**
+     * The JPEG encoding of the image. Callers must not modify the returned array.
+     */
+    public byte[] getJpegBytes() {
+        byte[] bytes = jpeg;
+        if (bytes == null) {
+            synchronized (this) {
+                bytes = jpeg;
+                if (bytes == null) {
+                    try {
+                        ByteArrayOutputStream out = new ByteArrayOutputStream(32 * 1024);
+                        ImageIO.write(getImage(), "JPEG", out);
+                        bytes = out.toByteArray();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to encode frame " + sequence, e);
+                    }
+                    jpeg = bytes;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Adds a reference.
+     * @return false if the frame was already fully released and must not be used
+     */
+    boolean retain() {
+        int count;
+        do {
+            count = references.get();
+            if (count == 0) {
+                return false;
+            }
+        } while (!references.compareAndSet(count, count + 1));
+        return true;
+    }
+
+    /**
+     * Drops a reference; the last release frees the image.
+     */
+    public void release() {
+        int count = references.decrementAndGet();
+        if (count == 0) {
+            image = null;
+            grayscale = null;
+            jpeg = null;
+        } else if (count < 0) {
+            references.incrementAndGet();
+            throw new IllegalStateException("Frame " + sequence + " released more often than retained");
+        }
+    }
+
+    @Override
+    public void close() {
+        release();
+    }
+
+    int getReferenceCount() {
+        return references.get();
+    }
+
+    private <T> T checkAlive(T value) {
+        if (value == null) {
+            throw new IllegalStateException("Frame " + sequence + " was already released");
+        }
+        return value;
+    }
+}
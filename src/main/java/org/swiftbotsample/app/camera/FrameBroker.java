@@ -0,0 +1,269 @@
+package org.swiftbotsample.app.camera;
+
+import org.swiftbotsample.app.hardware.BotHardware;
+import swiftbot.ImageSize;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Owns the camera of one SwiftBot and shares its frames between all vision consumers.
+ * <p>
+ * While at least one {@link Subscription} is open, a single capture thread takes frames at the fastest interval any
+ * subscriber asked for. Frames are the camera's own grayscale stills while any subscriber needs grayscale, since the
+ * vision thresholds are tuned on them, and color only when every subscriber wants color. Each subscriber receives the
+ * shared {@link Frame}s at its own interval, so several consumers cost one capture instead of one each.
+ * One-off stills at other sizes go through {@link #captureStill(ImageSize)} so they never collide with the capture loop.
+ */
+public final class FrameBroker {
+    public static final ImageSize DEFAULT_IMAGE_SIZE = ImageSize.SQUARE_480x480;
+
+    private static final Logger LOGGER = Logger.getLogger(FrameBroker.class.getName());
+    private static final long ERROR_BACKOFF = 1000; //milliseconds
+    private static final Map<BotHardware, FrameBroker> BROKERS = new IdentityHashMap<>();
+
+    private final BotHardware api;
+    private final ImageSize imageSize;
+    private final Object cameraLock = new Object();
+
+    //Guarded by lock
+    private final Object lock = new Object();
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    private Frame latestFrame;
+    private Thread captureThread;
+    private long sequence;
+
+    private volatile long framesCaptured;
+
+    public FrameBroker(BotHardware api, ImageSize imageSize) {
+        this.api = api;
+        this.imageSize = imageSize;
+    }
+
+    /**
+     * The shared broker of the bot. Creates it at {@link #DEFAULT_IMAGE_SIZE} unless one already exists.
+     */
+    public static FrameBroker forApi(BotHardware api) {
+        synchronized (BROKERS) {
+            return BROKERS.computeIfAbsent(api, key -> new FrameBroker(key, DEFAULT_IMAGE_SIZE));
+        }
+    }
+
+    /**
+     * The shared broker of the bot, capturing frames at the given size.
+     * Call this before anything else asks for the broker, the size cannot change once it exists.
+     * @throws IllegalStateException if the broker already exists with another size
+     */
+    public static FrameBroker forApi(BotHardware api, ImageSize imageSize) {
+        synchronized (BROKERS) {
+            FrameBroker broker = BROKERS.computeIfAbsent(api, key -> new FrameBroker(key, imageSize));
+            if (broker.imageSize != imageSize) {
+                throw new IllegalStateException("Frame broker already captures " + broker.imageSize + ", not " + imageSize);
+            }
+            return broker;
+        }
+    }
+
+    /**
+     * Starts receiving frames. The capture loop runs while any subscription is open.
+     * @param intervalMillis minimum time between two frames delivered to this subscriber
+     * @param color whether the subscriber prefers color frames. It still gets grayscale ones while another subscriber
+     *              needs grayscale
+     */
+    public Subscription subscribe(long intervalMillis, boolean color) {
+        Subscription subscription = new Subscription(TimeUnit.MILLISECONDS.toNanos(intervalMillis), color);
+        synchronized (lock) {
+            subscriptions.add(subscription);
+            if (captureThread == null) {
+                captureThread = new Thread(this::captureFrames, "camera-broker");
+                captureThread.setDaemon(true);
+                captureThread.start();
+            }
+            //Wake the capture loop so a faster subscriber takes effect right away
+            lock.notifyAll();
+        }
+        return subscription;
+    }
+
+    /**
+     * Takes a single still at the given size, in between frames of the capture loop.
+     */
+    public BufferedImage captureStill(ImageSize size) {
+        synchronized (cameraLock) {
+            return api.takeStill(size);
+        }
+    }
+
+    public ImageSize getImageSize() {
+        return imageSize;
+    }
+
+    public long getFramesCaptured() {
+        return framesCaptured;
+    }
+
+    public int getSubscriberCount() {
+        synchronized (lock) {
+            return subscriptions.size();
+        }
+    }
+
+    //Capture loop: runs until the last subscription closes
+    private void captureFrames() {
+        long nextCapture = System.nanoTime();
+        while (true) {
+            boolean color;
+            synchronized (lock) {
+                long wait;
+                while (!subscriptions.isEmpty() && (wait = nextCapture - System.nanoTime()) > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(lock, wait);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                    //A new subscriber may need frames sooner
+                    nextCapture = Math.min(nextCapture, System.nanoTime() + captureIntervalNanos());
+                }
+                if (subscriptions.isEmpty() || Thread.currentThread().isInterrupted()) {
+                    captureThread = null;
+                    if (latestFrame != null) {
+                        latestFrame.release();
+                        latestFrame = null;
+                    }
+                    return;
+                }
+                color = needsColor();
+            }
+
+            long start = System.nanoTime();
+            try {
+                BufferedImage image;
+                synchronized (cameraLock) {
+                    image = color ? api.takeStill(imageSize) : api.takeGrayscaleStill(imageSize);
+                }
+                if (image != null) {
+                    publish(image, start);
+                }
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Camera capture failed", e);
+                start += TimeUnit.MILLISECONDS.toNanos(ERROR_BACKOFF);
+            }
+
+            synchronized (lock) {
+                nextCapture = start + captureIntervalNanos();
+            }
+        }
+    }
+
+    private void publish(BufferedImage image, long timestampNanos) {
+        synchronized (lock) {
+            Frame frame = new Frame(++sequence, timestampNanos, image);
+            if (latestFrame != null) {
+                latestFrame.release();
+            }
+            latestFrame = frame;
+            framesCaptured++;
+            lock.notifyAll();
+        }
+    }
+
+    //Must be called while holding lock
+    private long captureIntervalNanos() {
+        long interval = Long.MAX_VALUE;
+        for (Subscription subscription : subscriptions) {
+            interval = Math.min(interval, subscription.intervalNanos);
+        }
+        return interval;
+    }
+
+    //Must be called while holding lock. Converted color frames give different gray levels, so grayscale always wins
+    private boolean needsColor() {
+        for (Subscription subscription : subscriptions) {
+            if (!subscription.color) {
+                return false;
+            }
+        }
+        return !subscriptions.isEmpty();
+    }
+
+    /**
+     * One consumer's view of the broker. Not thread-safe: each consumer thread uses its own subscription.
+     */
+    public final class Subscription implements AutoCloseable {
+        private volatile long intervalNanos;
+        private final boolean color;
+        private long lastSequence;
+        private long lastTimestamp;
+        private boolean closed;
+
+        private Subscription(long intervalNanos, boolean color) {
+            this.intervalNanos = intervalNanos;
+            this.color = color;
+        }
+
+        /**
+         * Waits for the next frame due for this subscriber: newer than the last one it received and at least its interval later.
+         * The frame is retained for the caller, who must release it.
+         * @return the frame, or null if the timeout elapsed or the subscription was closed
+         */
+        public Frame awaitNext(long timeoutMillis) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            synchronized (lock) {
+                while (true) {
+                    if (closed) {
+                        return null;
+                    }
+                    Frame frame = latestFrame;
+                    if (frame != null && frame.getSequence() > lastSequence
+                            && (lastSequence == 0 || frame.getTimestampNanos() - lastTimestamp >= intervalNanos)
+                            && frame.retain()) {
+                        lastSequence = frame.getSequence();
+                        lastTimestamp = frame.getTimestampNanos();
+                        return frame;
+                    }
+
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return null;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                }
+            }
+        }
+
+        /**
+         * Changes the minimum time between two frames delivered to this subscriber, for consumers that adapt their rate.
+         */
+        public void setIntervalMillis(long intervalMillis) {
+            synchronized (lock) {
+                long interval = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+                if (interval != intervalNanos) {
+                    intervalNanos = interval;
+                    //Wake the capture loop so a shorter interval takes effect right away
+                    lock.notifyAll();
+                }
+            }
+        }
+
+        /**
+         * Stops receiving frames; the capture loop stops once no subscription is left.
+         */
+        @Override
+        public void close() {
+            synchronized (lock) {
+                if (!closed) {
+                    closed = true;
+                    subscriptions.remove(this);
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+}
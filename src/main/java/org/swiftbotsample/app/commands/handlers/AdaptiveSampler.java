@@ -0,0 +1,75 @@
+package org.swiftbotsample.app.commands.handlers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks the sampling interval of one sensor monitor from how urgent fresh readings are,
+ * and measures the rate the monitor actually achieves.
+ * <p>
+ * Urgency runs from 0 (nothing to react to, sample at the slowest interval) to 1 (close to an obstacle, sample at the
+ * fastest interval); intervals in between are interpolated geometrically so the rate changes smoothly.
+ * Not thread-safe for updates: each sampler belongs to one monitor thread, the rates may be read from anywhere.
+ */
+final class AdaptiveSampler {
+    private static final double RATE_SMOOTHING = 0.2;
+
+    private final long minIntervalMillis;
+    private final long maxIntervalMillis;
+
+    private long lastSampleTime;
+    private double averageIntervalNanos;
+    private volatile long intervalMillis;
+    private volatile double effectiveRate;
+
+    AdaptiveSampler(long minIntervalMillis, long maxIntervalMillis) {
+        if (minIntervalMillis <= 0 || maxIntervalMillis < minIntervalMillis) {
+            throw new IllegalArgumentException("Invalid interval range " + minIntervalMillis + "-" + maxIntervalMillis + " ms");
+        }
+        this.minIntervalMillis = minIntervalMillis;
+        this.maxIntervalMillis = maxIntervalMillis;
+        this.intervalMillis = minIntervalMillis;
+    }
+
+    /**
+     * Records that a sample was just taken and chooses the interval until the next one.
+     * @param urgency 0 to 1, values outside are clamped
+     * @return the interval in milliseconds
+     */
+    long next(double urgency) {
+        long now = System.nanoTime();
+        if (lastSampleTime != 0) {
+            long interval = now - lastSampleTime;
+            averageIntervalNanos = averageIntervalNanos == 0
+                    ? interval
+                    : averageIntervalNanos + RATE_SMOOTHING * (interval - averageIntervalNanos);
+            effectiveRate = TimeUnit.SECONDS.toNanos(1) / averageIntervalNanos;
+        }
+        lastSampleTime = now;
+
+        double clamped = Double.isNaN(urgency) ? 1.0 : Math.max(0.0, Math.min(1.0, urgency));
+        double ratio = (double) minIntervalMillis / maxIntervalMillis;
+        intervalMillis = Math.round(maxIntervalMillis * Math.pow(ratio, clamped));
+        return intervalMillis;
+    }
+
+    /**
+     * Forgets the measured rate, for a new run.
+     */
+    void reset() {
+        lastSampleTime = 0;
+        averageIntervalNanos = 0;
+        effectiveRate = 0.0;
+        intervalMillis = minIntervalMillis;
+    }
+
+    long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    /**
+     * Smoothed rate of the samples actually taken, in Hz.
+     */
+    double getEffectiveRate() {
+        return effectiveRate;
+    }
+}
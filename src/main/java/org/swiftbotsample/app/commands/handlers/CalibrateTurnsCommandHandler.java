@@ -0,0 +1,43 @@
+package org.swiftbotsample.app.commands.handlers;
+
+import org.swiftbotsample.app.camera.FrameBroker;
+import org.swiftbotsample.app.commands.types.CalibrateTurnsCommand;
+import org.swiftbotsample.app.hardware.BotHardware;
+import org.swiftbotsample.app.motion.TurnCalibrator;
+import org.swiftbotsample.app.motion.TurnProfile;
+import org.swiftbotsample.app.stores.TurnProfileStore;
+import org.swiftbotsample.cqrs.core.CancellationToken;
+import org.swiftbotsample.cqrs.core.CommandHandler;
+
+import java.io.IOException;
+
+public class CalibrateTurnsCommandHandler extends CommandHandler<CalibrateTurnsCommand> {
+    //Speeds the navigation turns at, and the range around them
+    private static final int[] CALIBRATION_SPEEDS = {30, 40, 60};
+
+    @Override
+    public void handle(CalibrateTurnsCommand command, CancellationToken cancellation) throws InterruptedException {
+        System.out.println("Calibrate turns command received.");
+        BotHardware api = command.api;
+
+        TurnCalibrator calibrator = new TurnCalibrator(api, FrameBroker.forApi(api));
+        TurnProfile profile;
+        try {
+            profile = calibrator.calibrate(TurnProfileStore.getProfile(), CALIBRATION_SPEEDS, cancellation);
+        } finally {
+            api.stopMove();
+        }
+
+        if (cancellation.isCancellationRequested()) {
+            System.out.println("Turn calibration cancelled, keeping the previous profile.");
+            return;
+        }
+
+        try {
+            TurnProfileStore.setProfile(profile);
+            System.out.println("Turn calibration saved to " + TurnProfileStore.getPath() + ": " + profile);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -1,22 +1,31 @@
 package org.swiftbotsample.app.commands.handlers;
 
+import org.swiftbotsample.app.camera.FrameBroker;
+import org.swiftbotsample.app.hardware.BotHardware;
 import org.swiftbotsample.app.stores.ImageStore;
 import org.swiftbotsample.app.commands.types.CaptureImageCommand;
+import org.swiftbotsample.cqrs.core.CancellationToken;
 import org.swiftbotsample.cqrs.core.CommandHandler;
 import swiftbot.ImageSize;
-import swiftbot.SwiftBotAPI;
 
 import java.awt.image.BufferedImage;
 
 public class CaptureImageCommandHandler extends CommandHandler<CaptureImageCommand> {
 
     @Override
-    public void handle(CaptureImageCommand command) {
+    public void handle(CaptureImageCommand command, CancellationToken cancellation) {
         System.out.println("Capture Image command received.");
-        SwiftBotAPI api = command.api;
+        BotHardware api = command.api;
+
+        //A single still is short, so only check before triggering the camera
+        if (cancellation.isCancellationRequested()) {
+            System.out.println("Capture cancelled.");
+            return;
+        }
 
         try {
-            BufferedImage image = api.takeStill(ImageSize.SQUARE_1080x1080);
+            //Full resolution still, taken through the frame broker in between its shared frames
+            BufferedImage image = FrameBroker.forApi(api).captureStill(ImageSize.SQUARE_1080x1080);
 
             if (image != null) {
                 System.out.println("Image captured successfully.");
@@ -1,17 +1,29 @@
 package org.swiftbotsample.app.commands.handlers;
 
 import org.swiftbotsample.app.commands.types.LightShowCommand;
+import org.swiftbotsample.app.hardware.BotHardware;
+import org.swiftbotsample.app.lights.AnimationPlayer;
+import org.swiftbotsample.app.lights.LightAnimation;
+import org.swiftbotsample.app.lights.LightEffects;
+import org.swiftbotsample.cqrs.core.CancellationToken;
 import org.swiftbotsample.cqrs.core.CommandHandler;
 import swiftbot.Button;
-import swiftbot.SwiftBotAPI;
-import swiftbot.Underlight;
 
 public class LightShowCommandHandler extends CommandHandler<LightShowCommand> {
+    private static final long FRAME_MILLIS = 20;
+
+    //Compiled once, so the show only copies colors out of frame buffers while it plays
+    private static final LightAnimation[] EFFECTS = {
+            LightEffects.chase(new int[]{255, 255, 0}, 10), //Yellow, around the bot 10 times
+            LightEffects.rainbow(100), //100 steps in the color transition
+            LightEffects.wave(20)
+    };
 
     @Override
-    public void handle(LightShowCommand command) throws InterruptedException {
+    public void handle(LightShowCommand command, CancellationToken cancellation) throws InterruptedException {
         System.out.println("Light Show command received.");
-        SwiftBotAPI api = command.api;
+        BotHardware api = command.api;
+        AnimationPlayer player = new AnimationPlayer(api, FRAME_MILLIS);
 
         //Define the buttons array
         Button[] buttons = new Button[]{
@@ -22,136 +34,23 @@ public class LightShowCommandHandler extends CommandHandler<LightShowCommand> {
         };
 
         //Start the light show
-        chaseEffect(api);
-        rainbowCycle(api);
-        waveEffect(api);
-
-        //Reset the lights at the end
-        api.disableUnderlights();
-        for (Button button : buttons) {
-            api.setButtonLight(button, false);
-        }
-
-        System.out.println("Light show completed.");
-    }
-
-    //Chase effect: Lights up the underlights one after another
-    private void chaseEffect(SwiftBotAPI api) throws InterruptedException {
-        System.out.println("Starting chase effect...");
-        Underlight[] underlights = getUnderlightsArray();
-        int[] color = {255, 255, 0}; //Yellow color
-
-        //Repeat 10 times.
-        for (int i = 0; i < 10; i++) {
-            for (Underlight light : underlights) {
+        try {
+            boolean cancelled = false;
+            for (int i = 0; i < EFFECTS.length && !cancelled; i++) {
+                System.out.println("Starting " + EFFECTS[i].getName() + " effect...");
+                cancelled = player.play(EFFECTS[i], cancellation);
                 api.disableUnderlights();
-                api.setUnderlight(light, color);
-                Thread.sleep(20);
             }
-        }
-
-        api.disableUnderlights();
-    }
-
-    //Rainbow cycle: Cycles through colors across the underlights
-    private void rainbowCycle(SwiftBotAPI api) throws InterruptedException {
-        System.out.println("Starting rainbow cycle...");
-        Underlight[] underlights = getUnderlightsArray();
-        int steps = 100; //Number of steps in the color transition
-
-        for (int i = 0; i < steps; i++) {
-            for (int j = 0; j < underlights.length; j++) {
-                float hue = (float) ((i + j * (steps / underlights.length)) % steps) / steps;
-                int[] rgb = hsvToRgb(hue, 1.0f, 1.0f);
-                api.setUnderlight(underlights[j], rgb);
+            System.out.println(cancelled ? "Light show cancelled." : "Light show completed.");
+        } finally {
+            System.out.printf("Frames shown: %d, dropped: %d, late: %d (max %.1f ms)%n", player.getFramesShown(),
+                    player.getFramesDropped(), player.getFramesLate(), player.getMaxLatenessMillis());
+
+            //Reset the lights at the end
+            api.disableUnderlights();
+            for (Button button : buttons) {
+                api.setButtonLight(button, false);
             }
-            Thread.sleep(20);
-        }
-
-        api.disableUnderlights();
-    }
-
-    //Wave effect: Creates a wave-like effect by fading lights in and out
-    private void waveEffect(SwiftBotAPI api) throws InterruptedException {
-        System.out.println("Starting wave effect...");
-        Underlight[] underlights = getUnderlightsArray();
-        int maxBrightness = 255;
-
-        //Repeat 20 times.
-        for (int i = 0; i < 20; i++) {
-            for (int phase = 0; phase < underlights.length * 2; phase++) {
-                for (int j = 0; j < underlights.length; j++) {
-                    int distance = Math.abs(phase - j);
-                    int brightness = maxBrightness - (distance * 60);
-                    brightness = Math.max(0, Math.min(maxBrightness, brightness));
-                    int[] color = {brightness, brightness, 255}; //Blue wave
-                    api.setUnderlight(underlights[j], color);
-                }
-                Thread.sleep(20);
-            }
-        }
-
-        api.disableUnderlights();
-    }
-
-    //Helper method to get the underlights array
-    private Underlight[] getUnderlightsArray() {
-        return new Underlight[]{
-                Underlight.FRONT_LEFT,
-                Underlight.MIDDLE_LEFT,
-                Underlight.BACK_LEFT,
-                Underlight.BACK_RIGHT,
-                Underlight.MIDDLE_RIGHT,
-                Underlight.FRONT_RIGHT
-        };
-    }
-
-    //Helper method to convert HSV to RGB
-    private int[] hsvToRgb(float h, float s, float v) {
-        int r, g, b;
-
-        int i = (int) Math.floor(h * 6);
-        float f = h * 6 - i;
-        int p = Math.round(v * (1 - s) * 255);
-        int q = Math.round(v * (1 - f * s) * 255);
-        int t = Math.round(v * (1 - (1 - f) * s) * 255);
-        int vi = Math.round(v * 255);
-
-        switch (i % 6) {
-            case 0:
-                r = vi;
-                g = t;
-                b = p;
-                break;
-            case 1:
-                r = q;
-                g = vi;
-                b = p;
-                break;
-            case 2:
-                r = p;
-                g = vi;
-                b = t;
-                break;
-            case 3:
-                r = p;
-                g = q;
-                b = vi;
-                break;
-            case 4:
-                r = t;
-                g = p;
-                b = vi;
-                break;
-            case 5:
-                r = vi;
-                g = p;
-                b = q;
-                break;
-            default:
-                r = g = b = 0;
-                break;
         }
-        return new int[]{r, g, b};
     }
 }
\ No newline at end of file
@@ -1,14 +1,22 @@
 package org.swiftbotsample.app.commands.handlers;
 
+import org.swiftbotsample.app.camera.Frame;
+import org.swiftbotsample.app.camera.FrameBroker;
 import org.swiftbotsample.app.commands.types.NavigateObstaclesCommand;
+import org.swiftbotsample.app.hardware.BotHardware;
+import org.swiftbotsample.app.motion.TurnSegment;
+import org.swiftbotsample.app.stores.SensorRateStore;
+import org.swiftbotsample.app.stores.TurnProfileStore;
+import org.swiftbotsample.app.vision.EdgeDetector;
+import org.swiftbotsample.app.vision.ObstacleDetector;
+import org.swiftbotsample.app.vision.StuckDetector;
+import org.swiftbotsample.cqrs.core.CancellationToken;
 import org.swiftbotsample.cqrs.core.CommandHandler;
-import swiftbot.SwiftBotAPI;
 import swiftbot.Underlight;
-import swiftbot.ImageSize;
 
-import java.awt.image.BufferedImage;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -24,436 +32,519 @@ enum NavigationState {
 
 public class NavigateObstaclesCommandHandler extends CommandHandler<NavigateObstaclesCommand> {
 
+    //Raised by the sensor monitors when a condition starts, and consumed by the navigation loop
+    private enum NavigationEvent {
+        OBSTACLE_DETECTED,
+        STUCK_DETECTED,
+        CANCELLED
+    }
+
     //Define constants for sensor thresholds and timeouts
     private static final double OBSTACLE_DISTANCE_THRESHOLD = 15.0; //cm
     private static final double SAFE_DISTANCE = 25.0; //cm
-    private static final int TURN_DURATION = 300; //ms
+    private static final double NEW_OBSTACLE_MARGIN = 5.0; //cm closer than at the start of a turn
+    private static final double MIN_OBSTACLE_CONFIDENCE = 0.5; //freshness-weighted, below this an event is stale
+    private static final double MIN_STUCK_CONFIDENCE = 0.5; //freshness-weighted, below this an event is stale
     private static final int BACKUP_DURATION = 400; //ms
     private static final int MAX_BACKTRACK_ATTEMPTS = 2;
     private static final int MAX_STUCK_ATTEMPTS = 3;
     private static final int MAX_TURN_ANGLE = 90; //degrees
     private static final int MOVE_SPEED = 80;
     private static final int IMAGE_PROCESSING_INTERVAL = 500; //ms
-    private static final int STUCK_CHECK_INTERVAL = 1000; //ms
-
-    //Shared state variables
-    private volatile NavigationState state = NavigationState.MOVING_FORWARD;
-    private final AtomicBoolean keepNavigating = new AtomicBoolean(true);
-    private final AtomicBoolean obstacleDetected = new AtomicBoolean(false);
-    private final AtomicBoolean stuckDetected = new AtomicBoolean(false);
-    private int backtrackAttempts = 0;
-    private int stuckAttempts = 0;
-    private double obstacleDirection = 0.0; //-1.0 for left, 1.0 for right, 0.0 for straight ahead
+    private static final int STUCK_CHECK_INTERVAL = 500; //ms
+    //Sampling interval ranges, from closing in on an obstacle to a clear path
+    private static final int ULTRASONIC_MIN_INTERVAL = 30; //ms
+    private static final int ULTRASONIC_MAX_INTERVAL = 150; //ms
+    private static final int IMAGE_PROCESSING_MIN_INTERVAL = 250; //ms
+    private static final int IMAGE_PROCESSING_MAX_INTERVAL = 1000; //ms
+    private static final int STUCK_CHECK_MAX_INTERVAL = 1000; //ms
+    private static final long SHUTDOWN_TIMEOUT = 2000; //ms to wait for the threads of a run to end
+    //Underlight colors for each navigation state
+    private static final int[] GREEN = {0, 255, 0};
+    private static final int[] RED = {255, 0, 0};
+    private static final int[] ORANGE = {255, 165, 0};
+    private static final int[] BLUE = {0, 0, 255};
+    private static final int[] YELLOW = {255, 255, 0};
 
     private static final Logger logger = Logger.getLogger(NavigateObstaclesCommandHandler.class.getName());
 
     @Override
-    public void handle(NavigateObstaclesCommand command) throws InterruptedException, ExecutionException {
+    public void handle(NavigateObstaclesCommand command, CancellationToken cancellation) throws InterruptedException, ExecutionException {
         logger.info("Navigate obstacles command received.");
-        SwiftBotAPI api = command.api;
+        BotHardware api = command.api;
 
-        //Executor service for parallel tasks
-        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        //The handler is shared between commands, so every run gets its own state and threads
+        new NavigationRun(cancellation).run(api);
 
-        //Start sensor monitoring tasks
-        executorService.submit(() -> monitorUltrasonicSensor(api));
-        executorService.submit(() -> monitorCamera(api));
-        executorService.submit(() -> monitorMovement(api));
+        logger.info(cancellation.isCancellationRequested()
+                ? "Obstacle navigation cancelled."
+                : "Obstacle navigation completed.");
+    }
 
-        //Start the main navigation loop in a separate thread
-        Future<?> navigationTask = executorService.submit(() -> {
-            try {
-                navigate(api);
-            } catch (Exception e) {
-                logger.log(Level.SEVERE, "Navigation error: ", e);
+    //Waits for the monitors and the navigation loop to end, so none of them acts on the hardware or a later run
+    private static void awaitTermination(ExecutorService executorService) {
+        boolean interrupted = Thread.interrupted();
+        try {
+            if (!executorService.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                logger.warning("Navigation threads still running " + SHUTDOWN_TIMEOUT + " ms after stopping");
             }
-        });
-
-        //Wait for navigation to complete
-        navigationTask.get();
-
-        //Shutdown executor service
-        executorService.shutdownNow();
-
-        logger.info("Obstacle navigation completed.");
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 
     /**
-     * Main navigation logic.
+     * State and threads of one navigation run. Nothing outlives {@link #run(BotHardware)}, so a new run never shares
+     * sensors, events or monitors with one that is still shutting down.
      */
-    private void navigate(SwiftBotAPI api) throws InterruptedException {
-        while (keepNavigating.get()) {
-            switch (state) {
-                case MOVING_FORWARD:
-                    handleMovingForward(api);
-                    break;
-
-                case AVOIDING_OBSTACLE:
-                    handleAvoidingObstacle(api);
-                    break;
-
-                case TURNING:
-                    handleTurning(api);
-                    break;
-
-                case BACKTRACKING:
-                    handleBacktracking(api);
-                    break;
-
-                case STUCK:
-                    handleStuck(api);
-                    break;
-
-                case STOPPED:
-                    handleStopped(api);
-                    break;
+    private final class NavigationRun {
+        //Shared between the navigation thread and the monitors
+        private volatile NavigationState state = NavigationState.MOVING_FORWARD;
+        private final AtomicBoolean keepNavigating = new AtomicBoolean(true);
+        private final AtomicBoolean obstacleDetected = new AtomicBoolean(false);
+        private final AtomicBoolean stuckDetected = new AtomicBoolean(false);
+        private final BlockingQueue<NavigationEvent> events = new LinkedBlockingQueue<>();
+        //Monitors publish readings by swapping in a new snapshot, the navigation loop reads one snapshot per decision
+        private final AtomicReference<SensorSnapshot> sensors = new AtomicReference<>(SensorSnapshot.EMPTY);
+
+        //Only touched by the navigation thread
+        private int backtrackAttempts = 0;
+        private int stuckAttempts = 0;
+        private double turnDirection = 0.0; //-1.0 for left, 1.0 for right, 0.0 for straight ahead
+        private final ObstacleDetector obstacleDetector = new ObstacleDetector();
+        private final StuckDetector stuckDetector = new StuckDetector();
+        private final AdaptiveSampler ultrasonicSampler = new AdaptiveSampler(ULTRASONIC_MIN_INTERVAL, ULTRASONIC_MAX_INTERVAL);
+        private final AdaptiveSampler cameraSampler = new AdaptiveSampler(IMAGE_PROCESSING_MIN_INTERVAL, IMAGE_PROCESSING_MAX_INTERVAL);
+        private final AdaptiveSampler stuckSampler = new AdaptiveSampler(STUCK_CHECK_INTERVAL, STUCK_CHECK_MAX_INTERVAL);
+        private final CancellationToken cancellation;
+
+        NavigationRun(CancellationToken cancellation) {
+            this.cancellation = cancellation;
+        }
+
+        void run(BotHardware api) throws InterruptedException, ExecutionException {
+            cancellation.onCancel(() -> {
+                keepNavigating.set(false);
+                events.offer(NavigationEvent.CANCELLED);
+            });
+
+            //Both camera monitors share the frames of one capture loop
+            FrameBroker frameBroker = FrameBroker.forApi(api);
+            FrameBroker.Subscription obstacleFrames = frameBroker.subscribe(IMAGE_PROCESSING_INTERVAL, false);
+            FrameBroker.Subscription stuckFrames = frameBroker.subscribe(STUCK_CHECK_INTERVAL, false);
+
+            //Executor service for parallel tasks
+            ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+            //Start sensor monitoring tasks
+            executorService.submit(() -> monitorUltrasonicSensor(api));
+            executorService.submit(() -> monitorCamera(obstacleFrames));
+            executorService.submit(() -> monitorMovement(stuckFrames));
+
+            //Start the main navigation loop in a separate thread
+            Future<?> navigationTask = executorService.submit(() -> {
+                try {
+                    navigate(api);
+                } catch (Exception e) {
+                    logger.log(Level.SEVERE, "Navigation error: ", e);
+                }
+            });
+
+            try {
+                //Wait for navigation to complete
+                navigationTask.get();
+            } finally {
+                //Stop the monitors and leave the hardware idle, also when cancelled
+                keepNavigating.set(false);
+                obstacleFrames.close();
+                stuckFrames.close();
+                executorService.shutdownNow();
+                awaitTermination(executorService);
+                api.stopMove();
+                disableUnderlights(api);
+                SensorRateStore.setRate(SensorRateStore.ULTRASONIC, 0.0);
+                SensorRateStore.setRate(SensorRateStore.CAMERA, 0.0);
+                SensorRateStore.setRate(SensorRateStore.STUCK_CHECK, 0.0);
             }
-            //No unnecessary delay here to improve responsiveness
         }
-    }
 
-    private void handleMovingForward(SwiftBotAPI api) {
-        logger.info("State: MOVING_FORWARD");
-        api.startMove(MOVE_SPEED, MOVE_SPEED);
-        setUnderlightsColor(api, new int[]{0, 255, 0}); //Green color
+        /**
+         * Main navigation logic.
+         */
+        private void navigate(BotHardware api) throws InterruptedException {
+            logger.info("State: " + state);
+            startMovingForward(api);
+
+            while (keepNavigating.get()) {
+                switch (state) {
+                    case MOVING_FORWARD:
+                        handleMovingForward(api);
+                        break;
+
+                    case AVOIDING_OBSTACLE:
+                        handleAvoidingObstacle(api);
+                        break;
+
+                    case TURNING:
+                        handleTurning(api);
+                        break;
+
+                    case BACKTRACKING:
+                        handleBacktracking(api);
+                        break;
+
+                    case STUCK:
+                        handleStuck(api);
+                        break;
+
+                    case STOPPED:
+                        handleStopped(api);
+                        break;
+                }
+            }
+        }
 
-        if (obstacleDetected.get()) {
-            //Obstacle detected, switch to avoiding obstacle
-            api.stopMove();
-            setUnderlightsColor(api, new int[]{255, 0, 0}); //Red color
-            state = NavigationState.AVOIDING_OBSTACLE;
-        } else if (stuckDetected.get()) {
-            //Stuck detected, switch to stuck handling
-            api.stopMove();
-            setUnderlightsColor(api, new int[]{255, 165, 0}); //Orange color
-            state = NavigationState.STUCK;
+        //Motors, lights and logging only act when the state changes
+        private void transitionTo(BotHardware api, NavigationState next) {
+            logger.info("State: " + state + " -> " + next);
+            state = next;
+            if (next == NavigationState.MOVING_FORWARD) {
+                startMovingForward(api);
+            }
         }
-        sleepWithoutInterrupt(20); //Short sleep to prevent tight loop
-    }
 
-    private void handleAvoidingObstacle(SwiftBotAPI api) {
-        logger.info("State: AVOIDING_OBSTACLE");
-
-        //Decide which way to turn based on obstacle direction
-        if (obstacleDirection < 0) {
-            //Obstacle detected on the left, so turn right
-            state = NavigationState.TURNING;
-            obstacleDirection = 1.0;
-        } else if (obstacleDirection > 0) {
-            //Obstacle detected on the right, so turn left
-            state = NavigationState.TURNING;
-            obstacleDirection = -1.0;
-        } else {
-            //Obstacle straight ahead
-            state = NavigationState.BACKTRACKING;
+        private void startMovingForward(BotHardware api) {
+            api.startMove(MOVE_SPEED, MOVE_SPEED);
+            setUnderlightsColor(api, GREEN);
         }
-        obstacleDetected.set(false);
-        disableUnderlights(api);
-    }
 
-    private void handleTurning(SwiftBotAPI api) throws InterruptedException {
-        logger.info("State: TURNING");
-        setUnderlightsColor(api, new int[]{0, 0, 255}); //Blue color
+        private void handleMovingForward(BotHardware api) throws InterruptedException {
+            //The bot is already driving, so sleep until a monitor reports something
+            NavigationEvent event = events.take();
+            //Confirm the event against the current readings, it may have waited in the queue while they aged
+            SensorSnapshot snapshot = sensors.get();
+            long now = System.nanoTime();
+
+            if (event == NavigationEvent.OBSTACLE_DETECTED && obstacleDetected.get()) {
+                if (snapshot.getObstacleConfidence(OBSTACLE_DISTANCE_THRESHOLD, now) < MIN_OBSTACLE_CONFIDENCE) {
+                    //Stale, rearm so the monitors report the obstacle again if it is still there
+                    logger.fine("Ignoring stale obstacle event with " + snapshot);
+                    obstacleDetected.set(false);
+                    return;
+                }
+                //Obstacle detected, switch to avoiding obstacle
+                api.stopMove();
+                setUnderlightsColor(api, RED);
+                transitionTo(api, NavigationState.AVOIDING_OBSTACLE);
+            } else if (event == NavigationEvent.STUCK_DETECTED && stuckDetected.get()) {
+                if (snapshot.getWeightedStuckConfidence(now) < MIN_STUCK_CONFIDENCE) {
+                    logger.fine("Ignoring stale stuck event with " + snapshot);
+                    stuckDetected.set(false);
+                    return;
+                }
+                //Stuck detected, switch to stuck handling
+                api.stopMove();
+                setUnderlightsColor(api, ORANGE);
+                transitionTo(api, NavigationState.STUCK);
+            }
+            //Events whose condition was cleared in the meantime, and cancellation, need no action here
+        }
 
-        //Calculate turn parameters
-        int turnSpeed = MOVE_SPEED / 2;
-        int angle = (int) (MAX_TURN_ANGLE * obstacleDirection);
+        private void handleAvoidingObstacle(BotHardware api) {
+            //Decide which way to turn based on obstacle direction, taken from one consistent sensor view
+            SensorSnapshot snapshot = sensors.get();
+            double obstacleDirection = snapshot.getObstacleDirection(System.nanoTime());
+            logger.fine("Avoiding obstacle with " + snapshot);
+
+            NavigationState next;
+            if (obstacleDirection < 0) {
+                //Obstacle detected on the left, so turn right
+                next = NavigationState.TURNING;
+                turnDirection = 1.0;
+            } else if (obstacleDirection > 0) {
+                //Obstacle detected on the right, so turn left
+                next = NavigationState.TURNING;
+                turnDirection = -1.0;
+            } else {
+                //Obstacle straight ahead
+                next = NavigationState.BACKTRACKING;
+            }
+            obstacleDetected.set(false);
+            disableUnderlights(api);
+            transitionTo(api, next);
+        }
 
-        //Perform turn
-        logger.info("Turning with angle: " + angle + " degrees");
-        turnByAngle(api, angle, turnSpeed);
+        private void handleTurning(BotHardware api) throws InterruptedException {
+            setUnderlightsColor(api, BLUE);
 
-        //Reset attempts after a successful turn
-        backtrackAttempts = 0;
-        stuckAttempts = 0;
-        obstacleDirection = 0.0;
+            //Calculate turn parameters
+            int turnSpeed = MOVE_SPEED / 2;
+            int angle = (int) (MAX_TURN_ANGLE * turnDirection);
 
-        state = NavigationState.MOVING_FORWARD;
-    }
+            //Perform turn
+            logger.info("Turning with angle: " + angle + " degrees");
+            if (!performTurn(api, angle, turnSpeed)) {
+                abortManoeuvre(api);
+                return;
+            }
 
-    private void handleBacktracking(SwiftBotAPI api) throws InterruptedException {
-        logger.info("State: BACKTRACKING");
-        setUnderlightsColor(api, new int[]{255, 255, 0}); //Yellow color
+            //Reset attempts after a successful turn
+            backtrackAttempts = 0;
+            stuckAttempts = 0;
+            turnDirection = 0.0;
 
-        if (backtrackAttempts >= MAX_BACKTRACK_ATTEMPTS) {
-            //Maximum backtrack attempts reached
-            logger.warning("No clear path found. Stopping navigation.");
-            state = NavigationState.STOPPED;
-            return;
+            transitionTo(api, NavigationState.MOVING_FORWARD);
         }
 
-        logger.info("Backtracking... Attempt " + (backtrackAttempts + 1));
-        backtrackAttempts++;
+        private void handleBacktracking(BotHardware api) throws InterruptedException {
+            setUnderlightsColor(api, YELLOW);
 
-        //Back up
-        api.startMove(-MOVE_SPEED / 2, -MOVE_SPEED / 2);
-        sleepWithoutInterrupt(BACKUP_DURATION);
-        api.stopMove();
+            if (backtrackAttempts >= MAX_BACKTRACK_ATTEMPTS) {
+                //Maximum backtrack attempts reached
+                logger.warning("No clear path found. Stopping navigation.");
+                transitionTo(api, NavigationState.STOPPED);
+                return;
+            }
 
-        //Try turning in an alternate direction
-        obstacleDirection = (backtrackAttempts % 2 == 0) ? -1.0 : 1.0; //Alternate between left and right
-        state = NavigationState.TURNING;
-    }
+            logger.info("Backtracking... Attempt " + (backtrackAttempts + 1));
+            backtrackAttempts++;
 
-    private void handleStuck(SwiftBotAPI api) throws InterruptedException {
-        logger.info("State: STUCK");
-        setUnderlightsColor(api, new int[]{255, 165, 0}); //Orange color
+            //Back up
+            api.startMove(-MOVE_SPEED / 2, -MOVE_SPEED / 2);
+            sleepWithoutInterrupt(BACKUP_DURATION);
+            api.stopMove();
 
-        if (stuckAttempts >= MAX_STUCK_ATTEMPTS) {
-            //Maximum stuck attempts reached
-            logger.warning("Unable to get unstuck. Stopping navigation.");
-            state = NavigationState.STOPPED;
-            return;
+            //Try turning in an alternate direction
+            turnDirection = (backtrackAttempts % 2 == 0) ? -1.0 : 1.0; //Alternate between left and right
+            transitionTo(api, NavigationState.TURNING);
         }
 
-        logger.info("Attempting to get unstuck... Attempt " + (stuckAttempts + 1));
-        stuckAttempts++;
+        private void handleStuck(BotHardware api) throws InterruptedException {
+            setUnderlightsColor(api, ORANGE);
 
-        //Back up slightly
-        api.startMove(-MOVE_SPEED / 2, -MOVE_SPEED / 2);
-        sleepWithoutInterrupt(BACKUP_DURATION / 2);
-        api.stopMove();
-
-        //Turn slightly
-        obstacleDirection = (stuckAttempts % 2 == 0) ? -0.5 : 0.5; //Alternate directions
-        int angle = (int) (MAX_TURN_ANGLE * obstacleDirection / 2); //Smaller angle
-        turnByAngle(api, angle, MOVE_SPEED / 2);
+            if (stuckAttempts >= MAX_STUCK_ATTEMPTS) {
+                //Maximum stuck attempts reached
+                logger.warning("Unable to get unstuck. Stopping navigation.");
+                transitionTo(api, NavigationState.STOPPED);
+                return;
+            }
 
-        obstacleDirection = 0.0;
-        stuckDetected.set(false);
+            logger.info("Attempting to get unstuck... Attempt " + (stuckAttempts + 1));
+            stuckAttempts++;
 
-        state = NavigationState.MOVING_FORWARD;
-    }
+            //Back up slightly
+            api.startMove(-MOVE_SPEED / 2, -MOVE_SPEED / 2);
+            sleepWithoutInterrupt(BACKUP_DURATION / 2);
+            api.stopMove();
 
-    private void handleStopped(SwiftBotAPI api) {
-        logger.info("State: STOPPED");
-        api.stopMove();
-        disableUnderlights(api);
-        keepNavigating.set(false);
-    }
+            //Turn slightly
+            turnDirection = (stuckAttempts % 2 == 0) ? -0.5 : 0.5; //Alternate directions
+            int angle = (int) (MAX_TURN_ANGLE * turnDirection / 2); //Smaller angle
+            boolean completed = performTurn(api, angle, MOVE_SPEED / 2);
 
-    /**
-     * Monitors the ultrasonic sensor in a separate thread.
-     */
-    private void monitorUltrasonicSensor(SwiftBotAPI api) {
-        while (keepNavigating.get()) {
-            double distance = api.useUltrasound();
-            logger.fine("Ultrasonic sensor distance: " + distance + " cm");
-            if (distance < OBSTACLE_DISTANCE_THRESHOLD) {
-                logger.info("Ultrasonic obstacle detected at " + distance + " cm");
-                obstacleDetected.set(true);
-                obstacleDirection = 0.0;
+            turnDirection = 0.0;
+            stuckDetected.set(false);
+            if (!completed) {
+                abortManoeuvre(api);
+                return;
             }
-            sleepWithoutInterrupt(30); //Adjust sampling rate as necessary
+
+            transitionTo(api, NavigationState.MOVING_FORWARD);
         }
-    }
 
-    /**
-     * Monitors the camera for visual obstacles in a separate thread.
-     */
-    private void monitorCamera(SwiftBotAPI api) {
-        long lastProcessingTime = 0;
-        while (keepNavigating.get()) {
-            if (System.currentTimeMillis() - lastProcessingTime > IMAGE_PROCESSING_INTERVAL) {
-                lastProcessingTime = System.currentTimeMillis();
-                ObstacleDetectionResult result = detectObstacleWithCamera(api);
-                if (result.obstacleDetected) {
-                    logger.info("Visual obstacle detected via camera at direction: " + result.direction);
-                    obstacleDetected.set(true);
-                    obstacleDirection = result.direction;
+        private void handleStopped(BotHardware api) {
+            api.stopMove();
+            disableUnderlights(api);
+            keepNavigating.set(false);
+        }
+
+        /**
+         * Monitors the ultrasonic sensor in a separate thread.
+         */
+        private void monitorUltrasonicSensor(BotHardware api) {
+            while (keepNavigating.get()) {
+                double distance = api.useUltrasound();
+                long measuredAt = System.nanoTime();
+                logger.fine("Ultrasonic sensor distance: " + distance + " cm");
+                //Only the distance is replaced, the camera's direction stays as it was
+                sensors.updateAndGet(snapshot -> snapshot.withDistance(distance, measuredAt));
+                if (distance < OBSTACLE_DISTANCE_THRESHOLD) {
+                    //Only a new obstacle raises an event, not every sample that still sees it
+                    if (obstacleDetected.compareAndSet(false, true)) {
+                        logger.info("Ultrasonic obstacle detected at " + distance + " cm");
+                        events.offer(NavigationEvent.OBSTACLE_DETECTED);
+                    }
                 }
+                long interval = ultrasonicSampler.next(samplingUrgency());
+                SensorRateStore.setRate(SensorRateStore.ULTRASONIC, ultrasonicSampler.getEffectiveRate());
+                sleepWithoutInterrupt(interval);
             }
-            sleepWithoutInterrupt(50); //Adjust as necessary
         }
-    }
 
-    /**
-     * Monitors the robot's movement to detect if it's stuck.
-     */
-    private void monitorMovement(SwiftBotAPI api) {
-        BufferedImage previousImage = null;
-        long lastCheckTime = 0;
-        while (keepNavigating.get()) {
-            if (state == NavigationState.MOVING_FORWARD) {
-                if (System.currentTimeMillis() - lastCheckTime > STUCK_CHECK_INTERVAL) {
-                    lastCheckTime = System.currentTimeMillis();
-                    BufferedImage currentImage = api.takeGrayscaleStill(ImageSize.SQUARE_480x480);
-                    if (currentImage != null && previousImage != null) {
-                        double difference = calculateImageDifference(previousImage, currentImage);
-                        logger.fine("Image difference for stuck detection: " + difference);
-                        if (difference < 5.0) { //Threshold for considering the robot is stuck
-                            logger.warning("Robot might be stuck. Low image difference detected.");
-                            stuckDetected.set(true);
-                        } else {
-                            stuckDetected.set(false);
+        /**
+         * Monitors the camera for visual obstacles in a separate thread.
+         */
+        private void monitorCamera(FrameBroker.Subscription frames) {
+            while (keepNavigating.get()) {
+                try (Frame frame = frames.awaitNext(cameraSampler.getIntervalMillis() * 2)) {
+                    if (frame == null) {
+                        if (keepNavigating.get()) {
+                            logger.warning("No camera frame available for processing.");
                         }
+                        continue;
                     }
-                    previousImage = currentImage;
+                    //Edge density of the lower half tells whether and where an obstacle is
+                    ObstacleDetector.Result result = obstacleDetector.detect(frame.getGrayscale());
+                    logger.fine("Edge counts - Left: " + result.getEdgeCount(EdgeDetector.LEFT)
+                            + ", Center: " + result.getEdgeCount(EdgeDetector.CENTER)
+                            + ", Right: " + result.getEdgeCount(EdgeDetector.RIGHT));
+                    sensors.updateAndGet(snapshot -> snapshot.withVisual(result.isObstacleDetected(), result.getDirection(), frame.getTimestampNanos()));
+                    if (result.isObstacleDetected()) {
+                        if (obstacleDetected.compareAndSet(false, true)) {
+                            logger.info("Visual obstacle detected via camera at direction: " + result.getDirection());
+                            events.offer(NavigationEvent.OBSTACLE_DETECTED);
+                        }
+                    }
+                    frames.setIntervalMillis(cameraSampler.next(samplingUrgency()));
+                    SensorRateStore.setRate(SensorRateStore.CAMERA, cameraSampler.getEffectiveRate());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
                 }
-            } else {
-                previousImage = null; //Reset the previous image when not moving forward
-                stuckDetected.set(false);
             }
-            sleepWithoutInterrupt(100);
-        }
-    }
-
-    /**
-     * Detects obstacles using the camera and returns the result.
-     */
-    private ObstacleDetectionResult detectObstacleWithCamera(SwiftBotAPI api) {
-        BufferedImage image = api.takeGrayscaleStill(ImageSize.SQUARE_480x480);
-        if (image == null) {
-            logger.warning("Failed to capture image for processing.");
-            return new ObstacleDetectionResult(false, 0.0);
         }
-        //Improved image processing to identify obstacle direction
-        return processImageForObstacleDirection(image);
-    }
-
-    /**
-     * Process the image to detect obstacles and determine their direction.
-     */
-    private ObstacleDetectionResult processImageForObstacleDirection(BufferedImage image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-
-        //Divide the image into left, center, and right regions
-        int regionWidth = width / 3;
-        int[] edgeCount = new int[3]; //0: left, 1: center, 2: right
-
-        int threshold = 50; //Edge detection threshold
-
-        //Process each pixel to detect edges
-        for (int y = height / 2; y < height - 1; y++) { //Lower half of the image
-            for (int x = 1; x < width - 1; x++) {
-                int currentPixel = getGrayValue(image.getRGB(x, y));
-                int rightPixel = getGrayValue(image.getRGB(x + 1, y));
-                int bottomPixel = getGrayValue(image.getRGB(x, y + 1));
 
-                int diffX = Math.abs(currentPixel - rightPixel);
-                int diffY = Math.abs(currentPixel - bottomPixel);
-
-                int magnitude = diffX + diffY;
-
-                if (magnitude > threshold) {
-                    int regionIndex = x / regionWidth;
-                    regionIndex = Math.min(regionIndex, 2); //Ensure index is within bounds
-                    edgeCount[regionIndex]++;
+        /**
+         * Monitors the robot's movement to detect if it's stuck.
+         */
+        private void monitorMovement(FrameBroker.Subscription frames) {
+            stuckDetector.reset();
+            while (keepNavigating.get()) {
+                if (state == NavigationState.MOVING_FORWARD) {
+                    try (Frame frame = frames.awaitNext(stuckSampler.getIntervalMillis() * 2)) {
+                        if (frame == null || state != NavigationState.MOVING_FORWARD) {
+                            continue;
+                        }
+                        double confidence = stuckDetector.addFrame(frame.getGrayscale());
+                        logger.fine("Stuck confidence: " + confidence);
+                        sensors.updateAndGet(snapshot -> snapshot.withStuckConfidence(confidence, frame.getTimestampNanos()));
+                        if (stuckDetector.isStuck()) {
+                            if (stuckDetected.compareAndSet(false, true)) {
+                                logger.warning("Robot might be stuck. Camera view has not changed over the last frames.");
+                                events.offer(NavigationEvent.STUCK_DETECTED);
+                            }
+                        } else {
+                            stuckDetected.set(false);
+                        }
+                        frames.setIntervalMillis(stuckSampler.next(samplingUrgency()));
+                        SensorRateStore.setRate(SensorRateStore.STUCK_CHECK, stuckSampler.getEffectiveRate());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                } else {
+                    stuckDetector.reset(); //Only frames taken while moving forward count
+                    stuckDetected.set(false);
+                    sensors.updateAndGet(snapshot -> snapshot.withStuckConfidence(0.0, System.nanoTime()));
+                    sleepWithoutInterrupt(100);
                 }
             }
         }
 
-        //Determine if obstacle is present based on edge counts
-        int totalEdgeCount = edgeCount[0] + edgeCount[1] + edgeCount[2];
-        double edgeDensity = (double) totalEdgeCount / ((height / 2) * width);
-        logger.fine("Edge densities - Left: " + edgeCount[0] + ", Center: " + edgeCount[1] + ", Right: " + edgeCount[2]);
-
-        if (edgeDensity > 0.05) { //Adjust overall threshold as needed
-            //Determine obstacle direction
-            if (edgeCount[0] > edgeCount[2]) {
-                //More edges on the left side
-                return new ObstacleDetectionResult(true, -1.0); //Obstacle on the left
-            } else if (edgeCount[2] > edgeCount[0]) {
-                //More edges on the right side
-                return new ObstacleDetectionResult(true, 1.0); //Obstacle on the right
-            } else {
-                //Obstacle straight ahead
-                return new ObstacleDetectionResult(true, 0.0);
+        /**
+         * How urgently the monitors need fresh readings, from 0 to 1: full rate within {@link #SAFE_DISTANCE} or before the
+         * first reading, easing off linearly until twice that distance, and idle once the bot has stopped.
+         */
+        private double samplingUrgency() {
+            NavigationState current = state;
+            if (current == NavigationState.STOPPED) {
+                return 0.0;
             }
+            double distance = sensors.get().getDistance();
+            double urgency = Double.isNaN(distance) ? 1.0
+                    : Math.max(0.0, Math.min(1.0, (2 * SAFE_DISTANCE - distance) / SAFE_DISTANCE));
+            //Manoeuvres run blind on timers, keep a medium rate so the picture is current when they end
+            return current == NavigationState.MOVING_FORWARD ? urgency : Math.max(urgency, 0.5);
         }
-        return new ObstacleDetectionResult(false, 0.0);
-    }
 
-    /**
-     * Calculates the difference between two images.
-     */
-    private double calculateImageDifference(BufferedImage img1, BufferedImage img2) {
-        int width = Math.min(img1.getWidth(), img2.getWidth());
-        int height = Math.min(img1.getHeight(), img2.getHeight());
-
-        double totalDifference = 0.0;
-        int numPixels = 0;
-
-        //Downsample the image for faster computation
-        int stepSize = 10;
-
-        for (int y = 0; y < height; y += stepSize) {
-            for (int x = 0; x < width; x += stepSize) {
-                int gray1 = getGrayValue(img1.getRGB(x, y));
-                int gray2 = getGrayValue(img2.getRGB(x, y));
-                totalDifference += Math.abs(gray1 - gray2);
-                numPixels++;
+        /**
+         * Turns by a specific angle, timed from the calibrated turn profile. The navigation thread keeps taking events
+         * while the motors run, so a new obstacle or a cancellation ends the turn early.
+         * @return true if the whole angle was turned
+         */
+        private boolean performTurn(BotHardware api, int angle, int speed) throws InterruptedException {
+            double startDistance = sensors.get().getDistance();
+            TurnSegment segment = TurnSegment.start(api, TurnProfileStore.getProfile(), angle, speed);
+            try {
+                long remaining;
+                while ((remaining = segment.remainingMillis()) > 0) {
+                    NavigationEvent event = events.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (!keepNavigating.get()) {
+                        return false;
+                    }
+                    if (event == NavigationEvent.OBSTACLE_DETECTED && obstacleDetected.get()) {
+                        if (isNewObstacle(startDistance)) {
+                            logger.info("New obstacle while turning, stopped after " + Math.round(segment.stop())
+                                    + " of " + angle + " degrees");
+                            return false;
+                        }
+                        //Still the obstacle being turned away from, rearm so the monitors report the next one
+                        obstacleDetected.set(false);
+                    }
+                }
+                return true;
+            } finally {
+                segment.stop();
             }
         }
 
-        return totalDifference / numPixels;
-    }
-
-    /**
-     * Helper method to extract the grayscale value from an RGB integer.
-     */
-    private int getGrayValue(int rgb) {
-        return (rgb >> 16) & 0xFF; //Since the image is grayscale, we can use red channel
-    }
-
-    /**
-     * Helper method to perform a turn by a specific angle.
-     */
-    private void turnByAngle(SwiftBotAPI api, int angle, int speed) throws InterruptedException {
-        //Approximate the time needed to turn the specified angle
-        //This will depend on the robot's turning rate, which may require calibration
-        int turnTime = Math.abs(angle) * TURN_DURATION / MAX_TURN_ANGLE;
-
-        if (angle < 0) {
-            //Turn left
-            api.startMove(-speed, speed);
-        } else if (angle > 0) {
-            //Turn right
-            api.startMove(speed, -speed);
+        //Only the ultrasonic sensor counts while turning, camera frames are smeared by the rotation
+        private boolean isNewObstacle(double startDistance) {
+            SensorSnapshot snapshot = sensors.get();
+            double distance = snapshot.getDistance();
+            return snapshot.getDistanceWeight(System.nanoTime()) > 0
+                    && distance < OBSTACLE_DISTANCE_THRESHOLD
+                    && (Double.isNaN(startDistance) || distance < startDistance - NEW_OBSTACLE_MARGIN);
         }
-        sleepWithoutInterrupt(turnTime);
-        api.stopMove();
-    }
 
-    //Helper method to set underlights color
-    private void setUnderlightsColor(SwiftBotAPI api, int[] rgb) {
-        try {
-            api.fillUnderlights(rgb);
-        } catch (Exception e) {
-            logger.log(Level.WARNING, "Error setting underlights color: ", e);
+        //A turn was cut short: avoid the new obstacle, unless navigation is ending anyway
+        private void abortManoeuvre(BotHardware api) {
+            if (keepNavigating.get()) {
+                setUnderlightsColor(api, RED);
+                transitionTo(api, NavigationState.AVOIDING_OBSTACLE);
+            }
         }
-    }
 
-    //Helper method to disable underlights
-    private void disableUnderlights(SwiftBotAPI api) {
-        try {
-            api.disableUnderlights();
-        } catch (Exception e) {
-            logger.log(Level.WARNING, "Error disabling underlights: ", e);
+        //Helper method to set underlights color
+        private void setUnderlightsColor(BotHardware api, int[] rgb) {
+            try {
+                api.fillUnderlights(rgb);
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Error setting underlights color: ", e);
+            }
         }
-    }
 
-    //Utility method to sleep without throwing InterruptedException
-    private void sleepWithoutInterrupt(long millis) {
-        try {
-            Thread.sleep(millis);
-        } catch (InterruptedException e) {
-            //Restore the interrupted status
-            Thread.currentThread().interrupt();
+        //Helper method to disable underlights
+        private void disableUnderlights(BotHardware api) {
+            try {
+                api.disableUnderlights();
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Error disabling underlights: ", e);
+            }
         }
-    }
 
-    /**
-     * Class to hold obstacle detection results.
-     */
-    private static class ObstacleDetectionResult {
-        boolean obstacleDetected;
-        double direction; //-1.0 for left, 1.0 for right, 0.0 for straight ahead
-
-        public ObstacleDetectionResult(boolean obstacleDetected, double direction) {
-            this.obstacleDetected = obstacleDetected;
-            this.direction = direction;
+        //Utility method to sleep without throwing InterruptedException, waking up early on cancellation
+        private void sleepWithoutInterrupt(long millis) {
+            try {
+                cancellation.sleep(millis);
+            } catch (InterruptedException e) {
+                //Restore the interrupted status
+                Thread.currentThread().interrupt();
+            }
         }
     }
 }
\ No newline at end of file
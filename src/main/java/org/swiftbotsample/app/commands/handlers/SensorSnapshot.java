@@ -0,0 +1,118 @@
+package org.swiftbotsample.app.commands.handlers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One consistent view of the navigation sensors: the latest ultrasonic distance, camera obstacle reading and stuck
+ * confidence, each with the {@link System#nanoTime()} it was taken at.
+ * <p>
+ * Snapshots are immutable. A monitor publishes a reading by replacing the whole snapshot, so the control loop reads all
+ * sensors from one snapshot per tick. Readings are weighted by freshness: full weight when new, fading linearly to
+ * nothing at their maximum age, so a stale camera direction cannot steer the bot.
+ */
+final class SensorSnapshot {
+    static final long DISTANCE_MAX_AGE = TimeUnit.MILLISECONDS.toNanos(500);
+    static final long VISUAL_MAX_AGE = TimeUnit.MILLISECONDS.toNanos(1500);
+    static final long STUCK_MAX_AGE = TimeUnit.MILLISECONDS.toNanos(1500);
+
+    static final SensorSnapshot EMPTY = new SensorSnapshot(Double.NaN, 0, false, 0.0, 0, 0.0, 0, false, false, false);
+
+    private final double distance;
+    private final long distanceTime;
+    private final boolean visualObstacle;
+    private final double visualDirection; //-1.0 for left, 1.0 for right, 0.0 for straight ahead
+    private final long visualTime;
+    private final double stuckConfidence;
+    private final long stuckTime;
+    private final boolean hasDistance;
+    private final boolean hasVisual;
+    private final boolean hasStuck;
+
+    private SensorSnapshot(double distance, long distanceTime,
+                           boolean visualObstacle, double visualDirection, long visualTime,
+                           double stuckConfidence, long stuckTime,
+                           boolean hasDistance, boolean hasVisual, boolean hasStuck) {
+        this.distance = distance;
+        this.distanceTime = distanceTime;
+        this.visualObstacle = visualObstacle;
+        this.visualDirection = visualDirection;
+        this.visualTime = visualTime;
+        this.stuckConfidence = stuckConfidence;
+        this.stuckTime = stuckTime;
+        this.hasDistance = hasDistance;
+        this.hasVisual = hasVisual;
+        this.hasStuck = hasStuck;
+    }
+
+    SensorSnapshot withDistance(double distance, long time) {
+        return new SensorSnapshot(distance, time, visualObstacle, visualDirection, visualTime,
+                stuckConfidence, stuckTime, true, hasVisual, hasStuck);
+    }
+
+    SensorSnapshot withVisual(boolean obstacle, double direction, long time) {
+        return new SensorSnapshot(distance, distanceTime, obstacle, direction, time,
+                stuckConfidence, stuckTime, hasDistance, true, hasStuck);
+    }
+
+    SensorSnapshot withStuckConfidence(double confidence, long time) {
+        return new SensorSnapshot(distance, distanceTime, visualObstacle, visualDirection, visualTime,
+                confidence, time, hasDistance, hasVisual, true);
+    }
+
+    /**
+     * Last measured distance in cm, or NaN before the first reading.
+     */
+    double getDistance() {
+        return distance;
+    }
+
+    double getDistanceWeight(long now) {
+        return hasDistance ? freshness(distanceTime, now, DISTANCE_MAX_AGE) : 0.0;
+    }
+
+    double getVisualWeight(long now) {
+        return hasVisual ? freshness(visualTime, now, VISUAL_MAX_AGE) : 0.0;
+    }
+
+    double getStuckWeight(long now) {
+        return hasStuck ? freshness(stuckTime, now, STUCK_MAX_AGE) : 0.0;
+    }
+
+    /**
+     * How sure the sensors together are that something blocks the way, from 0 to 1.
+     */
+    double getObstacleConfidence(double thresholdDistance, long now) {
+        double ultrasonic = distance < thresholdDistance ? getDistanceWeight(now) : 0.0;
+        double visual = visualObstacle ? getVisualWeight(now) : 0.0;
+        return Math.max(ultrasonic, visual);
+    }
+
+    /**
+     * Side of the obstacle, from the camera since the ultrasonic sensor only sees straight ahead.
+     * The direction fades towards 0.0 (straight ahead) as the camera reading ages.
+     */
+    double getObstacleDirection(long now) {
+        return visualObstacle ? visualDirection * getVisualWeight(now) : 0.0;
+    }
+
+    /**
+     * Stuck confidence weighted by the age of the last stuck check.
+     */
+    double getWeightedStuckConfidence(long now) {
+        return stuckConfidence * getStuckWeight(now);
+    }
+
+    private static double freshness(long time, long now, long maxAge) {
+        long age = now - time;
+        if (age <= 0) {
+            return 1.0;
+        }
+        return age >= maxAge ? 0.0 : 1.0 - (double) age / maxAge;
+    }
+
+    @Override
+    public String toString() {
+        return "SensorSnapshot{distance=" + distance + ", visualObstacle=" + visualObstacle
+                + ", visualDirection=" + visualDirection + ", stuckConfidence=" + stuckConfidence + "}";
+    }
+}
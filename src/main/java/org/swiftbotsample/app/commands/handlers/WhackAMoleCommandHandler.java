@@ -1,12 +1,15 @@
 package org.swiftbotsample.app.commands.handlers;
 
 import org.swiftbotsample.app.commands.types.WhackAMoleCommand;
+import org.swiftbotsample.app.hardware.BotHardware;
+import org.swiftbotsample.app.stores.ButtonBindingStore;
 import org.swiftbotsample.app.stores.GameResultStore;
+import org.swiftbotsample.cqrs.core.CancellationToken;
 import org.swiftbotsample.cqrs.core.CommandHandler;
 import swiftbot.Button;
-import swiftbot.SwiftBotAPI;
 
 import java.util.Random;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class WhackAMoleCommandHandler extends CommandHandler<WhackAMoleCommand> {
@@ -19,18 +22,33 @@ public class WhackAMoleCommandHandler extends CommandHandler<WhackAMoleCommand>
     private final Button[] buttons = new Button[]{Button.A, Button.B, Button.X, Button.Y};
 
     @Override
-    public void handle(WhackAMoleCommand command) throws InterruptedException {
+    public void handle(WhackAMoleCommand command, CancellationToken cancellation) throws InterruptedException {
         System.out.println("Whack-A-Mole game started.");
-        SwiftBotAPI api = command.api;
+        BotHardware api = command.api;
+
+        try {
+            play(api, cancellation);
+        } catch (CancellationException e) {
+            System.out.println("Whack-A-Mole game cancelled.");
+        } finally {
+            gameRunning = false;
+            for (Button button : buttons) {
+                api.setButtonLight(button, false);
+            }
+            //Hand the buttons back to the button listener, the game replaced its callbacks
+            ButtonBindingStore.restoreDefaults();
+        }
+    }
 
+    private void play(BotHardware api, CancellationToken cancellation) throws InterruptedException {
         //Step 1: Prompt the user to press A-X-B-Y to start
-        if (!waitForStartSequence(api)) {
+        if (!waitForStartSequence(api, cancellation)) {
             System.out.println("Start sequence failed. Exiting game.");
             return;
         }
 
         //Step 2: Countdown
-        countdown(api);
+        countdown(api, cancellation);
 
         //Step 3: Start the game
         gameRunning = true;
@@ -44,7 +62,7 @@ public class WhackAMoleCommandHandler extends CommandHandler<WhackAMoleCommand>
         }
 
         //Game loop
-        playGame(api);
+        playGame(api, cancellation);
 
         //Disable buttons
         for (Button button : buttons) {
@@ -58,13 +76,13 @@ public class WhackAMoleCommandHandler extends CommandHandler<WhackAMoleCommand>
         System.out.println("Game over. Final score: " + score);
     }
 
-    private boolean waitForStartSequence(SwiftBotAPI api) throws InterruptedException {
+    private boolean waitForStartSequence(BotHardware api, CancellationToken cancellation) throws InterruptedException {
         System.out.println("Press buttons in sequence: A-X-B-Y to start.");
         Button[] startSequence = new Button[]{Button.A, Button.X, Button.B, Button.Y};
         int index = 0;
 
         while (index < startSequence.length) {
-            Button pressedButton = waitForButtonPress(api);
+            Button pressedButton = waitForButtonPress(api, cancellation);
             if (pressedButton.equals(startSequence[index])) {
                 index++;
                 System.out.println("Button " + pressedButton + " pressed correctly.");
@@ -77,7 +95,7 @@ public class WhackAMoleCommandHandler extends CommandHandler<WhackAMoleCommand>
         return true;
     }
 
-    private Button waitForButtonPress(SwiftBotAPI api) throws InterruptedException {
+    private Button waitForButtonPress(BotHardware api, CancellationToken cancellation) throws InterruptedException {
         final Object lock = new Object();
         final Button[] pressedButton = new Button[1];
 
@@ -92,28 +110,33 @@ public class WhackAMoleCommandHandler extends CommandHandler<WhackAMoleCommand>
             });
         }
 
-        synchronized (lock) {
-            lock.wait();
-        }
-
-        //Disable buttons to prevent multiple triggers
-        for (Button button : buttons) {
-            api.disableButton(button);
+        try {
+            //Wake up regularly so a cancellation is noticed while nobody presses anything
+            synchronized (lock) {
+                while (pressedButton[0] == null) {
+                    cancellation.throwIfCancellationRequested();
+                    lock.wait(20);
+                }
+                return pressedButton[0];
+            }
+        } finally {
+            //Disable buttons to prevent multiple triggers
+            for (Button button : buttons) {
+                api.disableButton(button);
+            }
         }
-
-        return pressedButton[0];
     }
 
-    private void countdown(SwiftBotAPI api) throws InterruptedException {
+    private void countdown(BotHardware api, CancellationToken cancellation) throws InterruptedException {
         System.out.println("Game starting in...");
         for (int i = 3; i > 0; i--) {
             System.out.println(i + "...");
-            Thread.sleep(1000);
+            sleep(cancellation, 1000);
         }
         System.out.println("Go!");
     }
 
-    private void playGame(SwiftBotAPI api) throws InterruptedException {
+    private void playGame(BotHardware api, CancellationToken cancellation) throws InterruptedException {
         Random random = new Random();
         int gameDuration = 30000; //30 seconds
         long endTime = System.currentTimeMillis() + gameDuration;
@@ -150,7 +173,7 @@ public class WhackAMoleCommandHandler extends CommandHandler<WhackAMoleCommand>
                         break;
                     }
                 }
-                Thread.sleep(50);
+                sleep(cancellation, 50);
             }
 
             //Turn off the button light
@@ -165,9 +188,16 @@ public class WhackAMoleCommandHandler extends CommandHandler<WhackAMoleCommand>
             maxScore += 10 * (combo > 0 ? combo : 1);
 
             //Short delay before next mole
-            Thread.sleep(500);
+            sleep(cancellation, 500);
         }
 
         gameRunning = false;
     }
+
+    //Sleeps, aborting the game if it was cancelled meanwhile
+    private void sleep(CancellationToken cancellation, long millis) throws InterruptedException {
+        if (cancellation.sleep(millis)) {
+            throw new CancellationException(cancellation.getReason());
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package org.swiftbotsample.app.commands.types;
+
+import org.swiftbotsample.app.BotMenuState;
+import org.swiftbotsample.app.ButtonName;
+import org.swiftbotsample.app.hardware.BotHardware;
+import org.swiftbotsample.cqrs.annotations.CommandAttribute;
+import org.swiftbotsample.cqrs.annotations.ConcurrencyPolicy;
+import org.swiftbotsample.cqrs.core.Command;
+
+@CommandAttribute(
+        menu = BotMenuState.class,
+        ordinal = 0,
+        priority = 4,
+        buttons = {ButtonName.B, ButtonName.Y},
+        concurrency = ConcurrencyPolicy.PREEMPT,
+        timeoutMillis = 120000
+)
+public class CalibrateTurnsCommand implements Command {
+    public BotHardware api;
+
+    public CalibrateTurnsCommand(BotHardware api) {
+        this.api = api;
+    }
+}
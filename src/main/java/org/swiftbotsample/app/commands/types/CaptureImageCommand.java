@@ -2,20 +2,23 @@ package org.swiftbotsample.app.commands.types;
 
 import org.swiftbotsample.app.BotMenuState;
 import org.swiftbotsample.app.ButtonName;
+import org.swiftbotsample.app.hardware.BotHardware;
 import org.swiftbotsample.cqrs.annotations.CommandAttribute;
+import org.swiftbotsample.cqrs.annotations.ConcurrencyPolicy;
 import org.swiftbotsample.cqrs.core.Command;
-import swiftbot.SwiftBotAPI;
 
 @CommandAttribute(
         menu = BotMenuState.class,
         ordinal = 0,
         priority = 2,
-        buttons = {ButtonName.A, ButtonName.B}
+        buttons = {ButtonName.A, ButtonName.B},
+        concurrency = ConcurrencyPolicy.DROP_IF_BUSY,
+        timeoutMillis = 10000
 )
 public class CaptureImageCommand implements Command {
-    public final SwiftBotAPI api;
+    public final BotHardware api;
 
-    public CaptureImageCommand(SwiftBotAPI api) {
+    public CaptureImageCommand(BotHardware api) {
         this.api = api;
     }
 }
\ No newline at end of file
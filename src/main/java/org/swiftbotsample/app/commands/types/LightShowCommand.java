@@ -3,20 +3,22 @@ package org.swiftbotsample.app.commands.types;
 
 import org.swiftbotsample.app.BotMenuState;
 import org.swiftbotsample.app.ButtonName;
+import org.swiftbotsample.app.hardware.BotHardware;
 import org.swiftbotsample.cqrs.annotations.CommandAttribute;
+import org.swiftbotsample.cqrs.annotations.ConcurrencyPolicy;
 import org.swiftbotsample.cqrs.core.Command;
-import swiftbot.SwiftBotAPI;
 
 @CommandAttribute(
         menu = BotMenuState.class,
         ordinal = 0,
         priority = 1,
-        buttons = {ButtonName.X, ButtonName.Y}
+        buttons = {ButtonName.X, ButtonName.Y},
+        concurrency = ConcurrencyPolicy.PREEMPT
 )
 public class LightShowCommand implements Command {
-    public final SwiftBotAPI api;
+    public final BotHardware api;
 
-    public LightShowCommand(SwiftBotAPI api) {
+    public LightShowCommand(BotHardware api) {
         this.api = api;
     }
 }
\ No newline at end of file
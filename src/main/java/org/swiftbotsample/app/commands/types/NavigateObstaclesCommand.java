@@ -2,20 +2,22 @@ package org.swiftbotsample.app.commands.types;
 
 import org.swiftbotsample.app.BotMenuState;
 import org.swiftbotsample.app.ButtonName;
+import org.swiftbotsample.app.hardware.BotHardware;
 import org.swiftbotsample.cqrs.annotations.CommandAttribute;
+import org.swiftbotsample.cqrs.annotations.ConcurrencyPolicy;
 import org.swiftbotsample.cqrs.core.Command;
-import swiftbot.SwiftBotAPI;
 
 @CommandAttribute(
         menu = BotMenuState.class,
         ordinal = 0,
         priority = 0,
-        buttons = {ButtonName.A, ButtonName.X}
+        buttons = {ButtonName.A, ButtonName.X},
+        concurrency = ConcurrencyPolicy.PREEMPT
 )
 public class NavigateObstaclesCommand implements Command {
-    public SwiftBotAPI api;
+    public BotHardware api;
 
-    public NavigateObstaclesCommand(SwiftBotAPI api) {
+    public NavigateObstaclesCommand(BotHardware api) {
         this.api = api;
     }
 }
\ No newline at end of file
@@ -2,20 +2,23 @@ package org.swiftbotsample.app.commands.types;
 
 import org.swiftbotsample.app.BotMenuState;
 import org.swiftbotsample.app.ButtonName;
+import org.swiftbotsample.app.hardware.BotHardware;
 import org.swiftbotsample.cqrs.annotations.CommandAttribute;
+import org.swiftbotsample.cqrs.annotations.ConcurrencyPolicy;
 import org.swiftbotsample.cqrs.core.Command;
-import swiftbot.SwiftBotAPI;
 
 @CommandAttribute(
         menu = BotMenuState.class,
         ordinal = 0,
         priority = 3,
-        buttons = {ButtonName.B, ButtonName.X}
+        buttons = {ButtonName.B, ButtonName.X},
+        concurrency = ConcurrencyPolicy.PREEMPT,
+        timeoutMillis = 120000
 )
 public class WhackAMoleCommand implements Command {
-    public final SwiftBotAPI api;
+    public final BotHardware api;
 
-    public WhackAMoleCommand(SwiftBotAPI api) {
+    public WhackAMoleCommand(BotHardware api) {
         this.api = api;
     }
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+package org.swiftbotsample.app.hardware;
+
+import swiftbot.Button;
+import swiftbot.ButtonFunction;
+import swiftbot.ImageSize;
+import swiftbot.Underlight;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * The SwiftBot hardware the application uses: motors, underlights, button lights and callbacks, the ultrasonic sensor
+ * and the camera. Handlers and listeners only talk to this interface, so they run against the robot through
+ * {@link SwiftBotHardware} or off the robot against {@link SimulatedBot}.
+ * Methods mirror {@code swiftbot.SwiftBotAPI}, including its argument conventions.
+ */
+public interface BotHardware {
+    /**
+     * Starts both wheels and keeps them running until {@link #stopMove()}.
+     * @param leftSpeed -100 to 100, negative drives backwards
+     * @param rightSpeed -100 to 100, negative drives backwards
+     */
+    void startMove(int leftSpeed, int rightSpeed);
+
+    void stopMove();
+
+    void fillUnderlights(int[] rgb);
+
+    void setUnderlight(Underlight underlight, int[] rgb);
+
+    void disableUnderlights();
+
+    /**
+     * Sets several underlights in one update.
+     * @param underlights the lights to set, in the order of their colors in {@code rgb}
+     * @param rgb three values per entry of {@code underlights}
+     */
+    default void setUnderlights(Underlight[] underlights, int[] rgb) {
+        int[] color = new int[3];
+        for (int light = 0; light < underlights.length; light++) {
+            System.arraycopy(rgb, light * 3, color, 0, 3);
+            setUnderlight(underlights[light], color);
+        }
+    }
+
+    void setButtonLight(Button button, boolean on);
+
+    void setButtonLightBrightness(Button button, int brightness);
+
+    /**
+     * Calls {@code function} on every press of {@code button}, replacing any earlier callback.
+     */
+    void enableButton(Button button, ButtonFunction function);
+
+    void disableButton(Button button);
+
+    /**
+     * Distance to the nearest object straight ahead, in cm.
+     */
+    double useUltrasound();
+
+    BufferedImage takeStill(ImageSize size);
+
+    BufferedImage takeGrayscaleStill(ImageSize size);
+}
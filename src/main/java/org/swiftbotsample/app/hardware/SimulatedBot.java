@@ -0,0 +1,566 @@
+package org.swiftbotsample.app.hardware;
+
+import swiftbot.Button;
+import swiftbot.ButtonFunction;
+import swiftbot.ImageSize;
+import swiftbot.Underlight;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-process SwiftBot, so navigation, the camera pipeline and the web interface can run on any machine.
+ * <p>
+ * The bot drives around a flat world of floor tiles, with an optional walled arena and round obstacles. Obstacles can be
+ * scripted to appear and disappear at given times. Motion is integrated from the wheel speeds, and the bot stops at
+ * anything it runs into while its wheels keep turning, as a real stuck bot does. The ultrasonic sensor measures the
+ * nearest surface within its cone. The camera renders the scene with a per-column raycaster: checkered obstacles and
+ * striped walls above a tiled floor, plus sensor noise. Both sensors take a configurable time to respond, and their
+ * readings are as old as that latency when they are returned.
+ * <p>
+ * Positions are in cm and headings in degrees counter-clockwise from the x axis, so turning right lowers the heading.
+ * All methods are thread-safe.
+ */
+public final class SimulatedBot implements BotHardware {
+    public static final double CAMERA_HORIZONTAL_FOV = 62.2; //degrees
+    public static final double BOT_RADIUS = 8.0; //cm
+    public static final double DEFAULT_OBSTACLE_HEIGHT = 15.0; //cm
+
+    private static final double CAMERA_HEIGHT = 10.0; //cm
+    private static final double HORIZON = 0.35; //fraction of the image height, the camera looks slightly down
+    private static final double WALL_HEIGHT = 30.0; //cm
+    private static final double ULTRASOUND_CONE = 15.0; //degrees either side
+    private static final int ULTRASOUND_RAYS = 7;
+    private static final double ULTRASOUND_MIN_RANGE = 2.0; //cm
+    private static final double ULTRASOUND_MAX_RANGE = 400.0; //cm
+    private static final double TILE_SIZE = 20.0; //cm
+    private static final double STRIPE_WIDTH = 4.0; //cm, on walls
+    private static final double CHECKER_SIZE = 0.75; //cm, on obstacles
+    private static final long STEP_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final Object lock = new Object();
+    private final long startTime = System.nanoTime();
+    private final List<Obstacle> obstacles = new CopyOnWriteArrayList<>();
+    private final double arenaWidth;
+    private final double arenaHeight;
+
+    //Guarded by lock
+    private final Random random;
+    private double x;
+    private double y;
+    private double heading; //radians
+    private int leftSpeed;
+    private int rightSpeed;
+    private long lastUpdate = startTime;
+    private boolean blocked;
+
+    //Guarded by lock
+    private final int[][] underlights = new int[Underlight.values().length][3];
+    private final boolean[] buttonLights = new boolean[Button.values().length];
+    private final int[] buttonBrightness = new int[Button.values().length];
+    private final ButtonFunction[] buttonFunctions = new ButtonFunction[Button.values().length];
+
+    private volatile long ultrasoundLatencyMillis = 10;
+    private volatile long cameraLatencyMillis = 100;
+    private volatile double ultrasoundNoise = 0.5; //cm, standard deviation
+    private volatile int cameraNoise = 3; //gray levels, either way
+    private volatile double fullSpeed = 40.0; //cm per second at speed 100
+    private volatile double fullTurnRate = 500.0; //degrees per second spinning on the spot at speed 100
+
+    private final AtomicLong collisions = new AtomicLong();
+    private final AtomicLong stillsTaken = new AtomicLong();
+    private final AtomicLong ultrasoundReadings = new AtomicLong();
+
+    /**
+     * @param arenaWidth width of the walled arena in cm, or 0 for an open floor
+     * @param arenaHeight height of the walled arena in cm, or 0 for an open floor
+     * @param seed seed of the sensor noise, so runs can be repeated
+     */
+    public SimulatedBot(double arenaWidth, double arenaHeight, long seed) {
+        this.arenaWidth = arenaWidth;
+        this.arenaHeight = arenaHeight;
+        this.random = new Random(seed);
+        this.x = arenaWidth > 0 ? arenaWidth / 2 : 0.0;
+        this.y = arenaHeight > 0 ? arenaHeight / 2 : 0.0;
+    }
+
+    /**
+     * A 3 m by 2 m arena with two fixed obstacles and one that shows up in the bot's path after 20 seconds.
+     */
+    public static SimulatedBot withDefaultArena(long seed) {
+        SimulatedBot bot = new SimulatedBot(300.0, 200.0, seed);
+        bot.setPose(40.0, 100.0, 0.0);
+        bot.addObstacle(new Obstacle(150.0, 90.0, 10.0));
+        bot.addObstacle(new Obstacle(230.0, 150.0, 12.0));
+        bot.addObstacle(new Obstacle(110.0, 40.0, 8.0, 20000, 60000));
+        return bot;
+    }
+
+    public void addObstacle(Obstacle obstacle) {
+        obstacles.add(obstacle);
+    }
+
+    public void clearObstacles() {
+        obstacles.clear();
+    }
+
+    public void setPose(double x, double y, double headingDegrees) {
+        synchronized (lock) {
+            advance(System.nanoTime());
+            this.x = x;
+            this.y = y;
+            this.heading = Math.toRadians(headingDegrees);
+            this.blocked = false;
+        }
+    }
+
+    public double getX() {
+        synchronized (lock) {
+            advance(System.nanoTime());
+            return x;
+        }
+    }
+
+    public double getY() {
+        synchronized (lock) {
+            advance(System.nanoTime());
+            return y;
+        }
+    }
+
+    public double getHeading() {
+        synchronized (lock) {
+            advance(System.nanoTime());
+            return Math.toDegrees(heading);
+        }
+    }
+
+    public void setUltrasoundLatencyMillis(long millis) {
+        ultrasoundLatencyMillis = millis;
+    }
+
+    public void setCameraLatencyMillis(long millis) {
+        cameraLatencyMillis = millis;
+    }
+
+    public void setUltrasoundNoise(double standardDeviation) {
+        ultrasoundNoise = standardDeviation;
+    }
+
+    public void setCameraNoise(int grayLevels) {
+        cameraNoise = grayLevels;
+    }
+
+    /**
+     * Sets how fast the bot drives and spins at full motor speed; both scale linearly with the speed.
+     */
+    public void setMotion(double cmPerSecond, double degreesPerSecond) {
+        synchronized (lock) {
+            advance(System.nanoTime());
+            fullSpeed = cmPerSecond;
+            fullTurnRate = degreesPerSecond;
+        }
+    }
+
+    /**
+     * Presses a button, calling its callback on the current thread if one is enabled.
+     */
+    public void pressButton(Button button) {
+        ButtonFunction function;
+        synchronized (lock) {
+            function = buttonFunctions[button.ordinal()];
+        }
+        if (function != null) {
+            function.run();
+        }
+    }
+
+    public int[] getUnderlight(Underlight underlight) {
+        synchronized (lock) {
+            return underlights[underlight.ordinal()].clone();
+        }
+    }
+
+    public boolean isButtonLightOn(Button button) {
+        synchronized (lock) {
+            return buttonLights[button.ordinal()];
+        }
+    }
+
+    public int getButtonLightBrightness(Button button) {
+        synchronized (lock) {
+            return buttonBrightness[button.ordinal()];
+        }
+    }
+
+    /**
+     * Times the bot ran into a wall or obstacle.
+     */
+    public long getCollisions() {
+        return collisions.get();
+    }
+
+    public long getStillsTaken() {
+        return stillsTaken.get();
+    }
+
+    public long getUltrasoundReadings() {
+        return ultrasoundReadings.get();
+    }
+
+    @Override
+    public void startMove(int leftSpeed, int rightSpeed) {
+        if (Math.abs(leftSpeed) > 100 || Math.abs(rightSpeed) > 100) {
+            throw new IllegalArgumentException("Speeds must be between -100 and 100, got " + leftSpeed + ", " + rightSpeed);
+        }
+        synchronized (lock) {
+            advance(System.nanoTime());
+            this.leftSpeed = leftSpeed;
+            this.rightSpeed = rightSpeed;
+        }
+    }
+
+    @Override
+    public void stopMove() {
+        startMove(0, 0);
+    }
+
+    @Override
+    public void fillUnderlights(int[] rgb) {
+        checkColor(rgb);
+        synchronized (lock) {
+            for (int[] underlight : underlights) {
+                System.arraycopy(rgb, 0, underlight, 0, 3);
+            }
+        }
+    }
+
+    @Override
+    public void setUnderlight(Underlight underlight, int[] rgb) {
+        checkColor(rgb);
+        synchronized (lock) {
+            System.arraycopy(rgb, 0, underlights[underlight.ordinal()], 0, 3);
+        }
+    }
+
+    @Override
+    public void disableUnderlights() {
+        fillUnderlights(new int[]{0, 0, 0});
+    }
+
+    @Override
+    public void setButtonLight(Button button, boolean on) {
+        synchronized (lock) {
+            buttonLights[button.ordinal()] = on;
+        }
+    }
+
+    @Override
+    public void setButtonLightBrightness(Button button, int brightness) {
+        if (brightness < 0 || brightness > 100) {
+            throw new IllegalArgumentException("Brightness must be between 0 and 100, got " + brightness);
+        }
+        synchronized (lock) {
+            buttonBrightness[button.ordinal()] = brightness;
+        }
+    }
+
+    @Override
+    public void enableButton(Button button, ButtonFunction function) {
+        synchronized (lock) {
+            buttonFunctions[button.ordinal()] = function;
+        }
+    }
+
+    @Override
+    public void disableButton(Button button) {
+        synchronized (lock) {
+            buttonFunctions[button.ordinal()] = null;
+        }
+    }
+
+    @Override
+    public double useUltrasound() {
+        double distance;
+        synchronized (lock) {
+            long now = System.nanoTime();
+            advance(now);
+            //The sensor sits at the front of the bot and reports the nearest echo within its cone
+            double sensorX = x + BOT_RADIUS * Math.cos(heading);
+            double sensorY = y + BOT_RADIUS * Math.sin(heading);
+            long elapsed = elapsedMillis(now);
+            distance = ULTRASOUND_MAX_RANGE;
+            for (int i = 0; i < ULTRASOUND_RAYS; i++) {
+                double offset = Math.toRadians(ULTRASOUND_CONE * (2.0 * i / (ULTRASOUND_RAYS - 1) - 1.0));
+                double[] hit = castRay(sensorX, sensorY, heading + offset, elapsed);
+                if (hit != null) {
+                    distance = Math.min(distance, hit[0]);
+                }
+            }
+            distance += random.nextGaussian() * ultrasoundNoise;
+        }
+        ultrasoundReadings.incrementAndGet();
+        pause(ultrasoundLatencyMillis);
+        return Math.max(ULTRASOUND_MIN_RANGE, Math.min(ULTRASOUND_MAX_RANGE, distance));
+    }
+
+    @Override
+    public BufferedImage takeStill(ImageSize size) {
+        BufferedImage gray = takeGrayscaleStill(size);
+        byte[] pixels = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+        BufferedImage image = new BufferedImage(gray.getWidth(), gray.getHeight(), BufferedImage.TYPE_INT_RGB);
+        int[] rgb = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < pixels.length; i++) {
+            int value = pixels[i] & 0xFF;
+            rgb[i] = (value << 16) | (value << 8) | value;
+        }
+        return image;
+    }
+
+    @Override
+    public BufferedImage takeGrayscaleStill(ImageSize size) {
+        double cameraX;
+        double cameraY;
+        double cameraHeading;
+        long elapsed;
+        long seed;
+        synchronized (lock) {
+            long now = System.nanoTime();
+            advance(now);
+            cameraX = x + BOT_RADIUS * Math.cos(heading);
+            cameraY = y + BOT_RADIUS * Math.sin(heading);
+            cameraHeading = heading;
+            elapsed = elapsedMillis(now);
+            seed = random.nextLong();
+        }
+        //Exposure and readout: the frame shows the scene as it was when the still was triggered
+        pause(cameraLatencyMillis);
+        stillsTaken.incrementAndGet();
+        return render(imageSide(size), cameraX, cameraY, cameraHeading, elapsed, new SplittableRandom(seed));
+    }
+
+    private BufferedImage render(int side, double cameraX, double cameraY, double cameraHeading, long elapsed, SplittableRandom noise) {
+        BufferedImage image = new BufferedImage(side, side, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        double focal = (side / 2.0) / Math.tan(Math.toRadians(CAMERA_HORIZONTAL_FOV / 2));
+        double horizon = side * HORIZON;
+        int noiseLevel = cameraNoise;
+
+        for (int column = 0; column < side; column++) {
+            double relative = Math.atan((column + 0.5 - side / 2.0) / focal); //positive to the right
+            double angle = cameraHeading - relative;
+            double cos = Math.cos(angle);
+            double sin = Math.sin(angle);
+            double[] hit = castRay(cameraX, cameraY, angle, elapsed);
+
+            int top = 0;
+            int bottom = 0;
+            double depth = 1.0;
+            boolean wall = false;
+            long stripe = 0;
+            if (hit != null) {
+                depth = Math.max(1e-3, hit[0] * Math.cos(relative));
+                top = (int) Math.round(horizon - (hit[2] - CAMERA_HEIGHT) * focal / depth);
+                bottom = (int) Math.round(horizon + CAMERA_HEIGHT * focal / depth);
+                wall = hit[2] >= WALL_HEIGHT;
+                stripe = (long) Math.floor(hit[1] / (wall ? STRIPE_WIDTH : CHECKER_SIZE));
+            }
+
+            for (int row = 0; row < side; row++) {
+                int value;
+                if (row >= top && row < bottom) {
+                    if (wall) {
+                        value = (stripe & 1) == 0 ? 120 : 190;
+                    } else {
+                        //Height on the obstacle seen by this pixel, for a checkerboard that is busy in both directions
+                        long band = (long) Math.floor((CAMERA_HEIGHT + (horizon - row) * depth / focal) / CHECKER_SIZE);
+                        value = ((stripe + band) & 1) == 0 ? 50 : 160;
+                    }
+                } else if (row <= horizon || row < bottom) {
+                    value = 210; //Room beyond the floor, and above anything in view
+                } else {
+                    //Floor point seen by this pixel
+                    double distance = CAMERA_HEIGHT * focal / (row - horizon) / Math.cos(relative);
+                    value = floorShade(cameraX + distance * cos, cameraY + distance * sin);
+                }
+                if (noiseLevel > 0) {
+                    value += noise.nextInt(2 * noiseLevel + 1) - noiseLevel;
+                }
+                pixels[row * side + column] = (byte) Math.max(0, Math.min(255, value));
+            }
+        }
+        return image;
+    }
+
+    //Tiles of slightly different shades with darker seams, so the floor moves visibly under a driving bot
+    private static int floorShade(double floorX, double floorY) {
+        double tileX = Math.floor(floorX / TILE_SIZE);
+        double tileY = Math.floor(floorY / TILE_SIZE);
+        long hash = (long) tileX * 73856093L ^ (long) tileY * 19349663L;
+        int shade = 110 + (int) Math.floorMod(hash, 40L);
+        double seamX = floorX / TILE_SIZE - tileX;
+        double seamY = floorY / TILE_SIZE - tileY;
+        return seamX < 0.05 || seamY < 0.05 ? shade - 35 : shade;
+    }
+
+    /**
+     * Nearest surface along a ray.
+     * @return distance, position along the surface and surface height, or null if nothing is hit
+     */
+    private double[] castRay(double originX, double originY, double angle, long elapsed) {
+        double dx = Math.cos(angle);
+        double dy = Math.sin(angle);
+        double[] nearest = null;
+
+        for (Obstacle obstacle : obstacles) {
+            if (!obstacle.isPresent(elapsed)) {
+                continue;
+            }
+            //Solve |origin + t * direction - center| = radius for the nearest t >= 0
+            double ox = originX - obstacle.x;
+            double oy = originY - obstacle.y;
+            double b = ox * dx + oy * dy;
+            double c = ox * ox + oy * oy - obstacle.radius * obstacle.radius;
+            double discriminant = b * b - c;
+            if (discriminant < 0) {
+                continue;
+            }
+            double t = -b - Math.sqrt(discriminant);
+            if (t < 0) {
+                t = -b + Math.sqrt(discriminant);
+            }
+            if (t >= 0 && (nearest == null || t < nearest[0])) {
+                double hitAngle = Math.atan2(originY + t * dy - obstacle.y, originX + t * dx - obstacle.x);
+                nearest = new double[]{t, hitAngle * obstacle.radius, obstacle.height};
+            }
+        }
+
+        if (arenaWidth > 0 && arenaHeight > 0) {
+            nearest = nearerWall(nearest, dx != 0 ? (dx > 0 ? arenaWidth - originX : -originX) / dx : Double.MAX_VALUE, originY, dy);
+            nearest = nearerWall(nearest, dy != 0 ? (dy > 0 ? arenaHeight - originY : -originY) / dy : Double.MAX_VALUE, originX, dx);
+        }
+        return nearest;
+    }
+
+    private static double[] nearerWall(double[] nearest, double t, double along, double alongDirection) {
+        if (t < 0 || t == Double.MAX_VALUE || (nearest != null && nearest[0] <= t)) {
+            return nearest;
+        }
+        return new double[]{t, along + t * alongDirection, WALL_HEIGHT};
+    }
+
+    //Integrates the motion since the last update in small steps, must be called while holding lock
+    private void advance(long now) {
+        double speedPerNano = fullSpeed / 100.0 / 1e9;
+        double turnPerNano = Math.toRadians(fullTurnRate) / 100.0 / 1e9;
+        while (lastUpdate < now) {
+            long step = Math.min(STEP_NANOS, now - lastUpdate);
+            double velocity = (leftSpeed + rightSpeed) / 2.0 * speedPerNano * step;
+            //The left wheel faster than the right turns the bot right, clockwise
+            heading += (rightSpeed - leftSpeed) / 2.0 * turnPerNano * step;
+
+            double nextX = x + velocity * Math.cos(heading);
+            double nextY = y + velocity * Math.sin(heading);
+            if (velocity == 0 || !collides(nextX, nextY, elapsedMillis(lastUpdate + step))) {
+                x = nextX;
+                y = nextY;
+                blocked = false;
+            } else if (!blocked) {
+                blocked = true;
+                collisions.incrementAndGet();
+            }
+            lastUpdate += step;
+        }
+    }
+
+    private boolean collides(double botX, double botY, long elapsed) {
+        if (arenaWidth > 0 && arenaHeight > 0
+                && (botX < BOT_RADIUS || botY < BOT_RADIUS || botX > arenaWidth - BOT_RADIUS || botY > arenaHeight - BOT_RADIUS)) {
+            return true;
+        }
+        for (Obstacle obstacle : obstacles) {
+            if (obstacle.isPresent(elapsed)
+                    && Math.hypot(botX - obstacle.x, botY - obstacle.y) < obstacle.radius + BOT_RADIUS) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long elapsedMillis(long time) {
+        return TimeUnit.NANOSECONDS.toMillis(time - startTime);
+    }
+
+    private static int imageSide(ImageSize size) {
+        //Names look like SQUARE_480x480
+        String name = size.name();
+        return Integer.parseInt(name.substring(name.lastIndexOf('x') + 1));
+    }
+
+    private static void checkColor(int[] rgb) {
+        if (rgb == null || rgb.length != 3) {
+            throw new IllegalArgumentException("Colors are three values, red, green and blue");
+        }
+        for (int value : rgb) {
+            if (value < 0 || value > 255) {
+                throw new IllegalArgumentException("Color values must be between 0 and 255, got " + value);
+            }
+        }
+    }
+
+    private static void pause(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            //Like the hardware, finish the reading and leave the interrupt to the caller
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A round obstacle, optionally present only between two times after the simulator was created.
+     */
+    public static final class Obstacle {
+        private final double x;
+        private final double y;
+        private final double radius;
+        private final double height;
+        private final long appearAtMillis;
+        private final long disappearAtMillis;
+
+        public Obstacle(double x, double y, double radius) {
+            this(x, y, radius, 0, Long.MAX_VALUE);
+        }
+
+        public Obstacle(double x, double y, double radius, long appearAtMillis, long disappearAtMillis) {
+            this(x, y, radius, DEFAULT_OBSTACLE_HEIGHT, appearAtMillis, disappearAtMillis);
+        }
+
+        public Obstacle(double x, double y, double radius, double height, long appearAtMillis, long disappearAtMillis) {
+            if (radius <= 0 || height <= 0 || disappearAtMillis < appearAtMillis) {
+                throw new IllegalArgumentException("Invalid obstacle of radius " + radius + " and height " + height
+                        + " from " + appearAtMillis + " to " + disappearAtMillis + " ms");
+            }
+            this.x = x;
+            this.y = y;
+            this.radius = radius;
+            this.height = height;
+            this.appearAtMillis = appearAtMillis;
+            this.disappearAtMillis = disappearAtMillis;
+        }
+
+        boolean isPresent(long elapsedMillis) {
+            return elapsedMillis >= appearAtMillis && elapsedMillis < disappearAtMillis;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.swiftbotsample.app.hardware;
+
+import swiftbot.Button;
+import swiftbot.ButtonFunction;
+import swiftbot.ImageSize;
+import swiftbot.SwiftBotAPI;
+import swiftbot.Underlight;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * The real robot: every call goes straight to {@link SwiftBotAPI}.
+ */
+public final class SwiftBotHardware implements BotHardware {
+    private final SwiftBotAPI api;
+
+    public SwiftBotHardware(SwiftBotAPI api) {
+        this.api = api;
+    }
+
+    @Override
+    public void startMove(int leftSpeed, int rightSpeed) {
+        api.startMove(leftSpeed, rightSpeed);
+    }
+
+    @Override
+    public void stopMove() {
+        api.stopMove();
+    }
+
+    @Override
+    public void fillUnderlights(int[] rgb) {
+        api.fillUnderlights(rgb);
+    }
+
+    @Override
+    public void setUnderlight(Underlight underlight, int[] rgb) {
+        api.setUnderlight(underlight, rgb);
+    }
+
+    @Override
+    public void disableUnderlights() {
+        api.disableUnderlights();
+    }
+
+    @Override
+    public void setButtonLight(Button button, boolean on) {
+        api.setButtonLight(button, on);
+    }
+
+    @Override
+    public void setButtonLightBrightness(Button button, int brightness) {
+        api.setButtonLightBrightness(button, brightness);
+    }
+
+    @Override
+    public void enableButton(Button button, ButtonFunction function) {
+        api.enableButton(button, function);
+    }
+
+    @Override
+    public void disableButton(Button button) {
+        api.disableButton(button);
+    }
+
+    @Override
+    public double useUltrasound() {
+        return api.useUltrasound();
+    }
+
+    @Override
+    public BufferedImage takeStill(ImageSize size) {
+        return api.takeStill(size);
+    }
+
+    @Override
+    public BufferedImage takeGrayscaleStill(ImageSize size) {
+        return api.takeGrayscaleStill(size);
+    }
+}
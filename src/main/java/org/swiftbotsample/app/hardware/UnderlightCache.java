@@ -0,0 +1,221 @@
+package org.swiftbotsample.app.hardware;
+
+import swiftbot.Button;
+import swiftbot.ButtonFunction;
+import swiftbot.ImageSize;
+import swiftbot.Underlight;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Remembers the last color sent to each underlight and drops writes that would not change anything.
+ * A whole frame from {@link #setUnderlights(Underlight[], int[])} goes out as the fewest calls: the changed lights one by one, or one
+ * fill with the frame's most common color followed by the lights that differ from it, whichever is shorter.
+ * <p>
+ * Every underlight write must go through this instance, otherwise the cache goes stale. A light's color is unknown
+ * until it has been written once, so the first write always reaches the hardware. All other calls are forwarded as they are.
+ * State is kept per {@link Underlight#ordinal()}, so frames may list the lights in any order.
+ */
+public final class UnderlightCache implements BotHardware {
+    private static final Underlight[] UNDERLIGHTS = Underlight.values();
+    private static final int LIGHTS = UNDERLIGHTS.length;
+    private static final int[] OFF = {0, 0, 0};
+
+    private final BotHardware delegate;
+    private final int[] colors = new int[LIGHTS * 3];
+    private final boolean[] known = new boolean[LIGHTS];
+    private final int[] color = new int[3];
+
+    //Written under the lock, volatile so metrics can be read from anywhere
+    private volatile long writesSent;
+    private volatile long writesSkipped;
+
+    public UnderlightCache(BotHardware delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public synchronized void fillUnderlights(int[] rgb) {
+        if (isFilledWith(rgb)) {
+            writesSkipped++;
+            return;
+        }
+        sendFill(rgb);
+    }
+
+    @Override
+    public synchronized void setUnderlight(Underlight underlight, int[] rgb) {
+        int light = underlight.ordinal();
+        if (known[light] && matches(light, rgb, 0)) {
+            writesSkipped++;
+            return;
+        }
+        sendLight(light, rgb, 0);
+    }
+
+    @Override
+    public synchronized void disableUnderlights() {
+        if (isFilledWith(OFF)) {
+            writesSkipped++;
+            return;
+        }
+        //Nothing known about the lights until the call succeeds
+        Arrays.fill(known, false);
+        delegate.disableUnderlights();
+        writesSent++;
+        for (int light = 0; light < LIGHTS; light++) {
+            store(light, OFF, 0);
+        }
+    }
+
+    @Override
+    public synchronized void setUnderlights(Underlight[] underlights, int[] rgb) {
+        int count = underlights.length;
+        int changed = 0;
+        for (int entry = 0; entry < count; entry++) {
+            int light = underlights[entry].ordinal();
+            if (!known[light] || !matches(light, rgb, entry * 3)) {
+                changed++;
+            }
+        }
+        if (changed == 0) {
+            writesSkipped++;
+            return;
+        }
+
+        //A fill only pays off for a frame that covers every light, its most common color is the one worth filling with
+        int fillEntry = 0;
+        int fillCount = 0;
+        if (count == LIGHTS) {
+            for (int entry = 0; entry < count; entry++) {
+                int same = 0;
+                for (int other = 0; other < count; other++) {
+                    if (sameColor(rgb, entry * 3, rgb, other * 3)) {
+                        same++;
+                    }
+                }
+                if (same > fillCount) {
+                    fillEntry = entry;
+                    fillCount = same;
+                }
+            }
+        }
+
+        if (fillCount > 0 && 1 + LIGHTS - fillCount < changed) {
+            System.arraycopy(rgb, fillEntry * 3, color, 0, 3);
+            sendFill(color);
+            for (int entry = 0; entry < count; entry++) {
+                int light = underlights[entry].ordinal();
+                if (!matches(light, rgb, entry * 3)) {
+                    sendLight(light, rgb, entry * 3);
+                }
+            }
+        } else {
+            for (int entry = 0; entry < count; entry++) {
+                int light = underlights[entry].ordinal();
+                if (!known[light] || !matches(light, rgb, entry * 3)) {
+                    sendLight(light, rgb, entry * 3);
+                }
+            }
+        }
+    }
+
+    /**
+     * Underlight calls that reached the hardware.
+     */
+    public long getWritesSent() {
+        return writesSent;
+    }
+
+    /**
+     * Underlight calls dropped because they would not have changed any light.
+     */
+    public long getWritesSkipped() {
+        return writesSkipped;
+    }
+
+    private boolean isFilledWith(int[] rgb) {
+        for (int light = 0; light < LIGHTS; light++) {
+            if (!known[light] || !matches(light, rgb, 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void sendFill(int[] rgb) {
+        Arrays.fill(known, false);
+        delegate.fillUnderlights(rgb);
+        writesSent++;
+        for (int light = 0; light < LIGHTS; light++) {
+            store(light, rgb, 0);
+        }
+    }
+
+    private void sendLight(int light, int[] rgb, int offset) {
+        known[light] = false;
+        System.arraycopy(rgb, offset, color, 0, 3);
+        delegate.setUnderlight(UNDERLIGHTS[light], color);
+        writesSent++;
+        store(light, color, 0);
+    }
+
+    private void store(int light, int[] rgb, int offset) {
+        System.arraycopy(rgb, offset, colors, light * 3, 3);
+        known[light] = true;
+    }
+
+    private boolean matches(int light, int[] rgb, int offset) {
+        return sameColor(colors, light * 3, rgb, offset);
+    }
+
+    private static boolean sameColor(int[] a, int aOffset, int[] b, int bOffset) {
+        return a[aOffset] == b[bOffset] && a[aOffset + 1] == b[bOffset + 1] && a[aOffset + 2] == b[bOffset + 2];
+    }
+
+    @Override
+    public void startMove(int leftSpeed, int rightSpeed) {
+        delegate.startMove(leftSpeed, rightSpeed);
+    }
+
+    @Override
+    public void stopMove() {
+        delegate.stopMove();
+    }
+
+    @Override
+    public void setButtonLight(Button button, boolean on) {
+        delegate.setButtonLight(button, on);
+    }
+
+    @Override
+    public void setButtonLightBrightness(Button button, int brightness) {
+        delegate.setButtonLightBrightness(button, brightness);
+    }
+
+    @Override
+    public void enableButton(Button button, ButtonFunction function) {
+        delegate.enableButton(button, function);
+    }
+
+    @Override
+    public void disableButton(Button button) {
+        delegate.disableButton(button);
+    }
+
+    @Override
+    public double useUltrasound() {
+        return delegate.useUltrasound();
+    }
+
+    @Override
+    public BufferedImage takeStill(ImageSize size) {
+        return delegate.takeStill(size);
+    }
+
+    @Override
+    public BufferedImage takeGrayscaleStill(ImageSize size) {
+        return delegate.takeGrayscaleStill(size);
+    }
+}
@@ -0,0 +1,100 @@
+package org.swiftbotsample.app.lights;
+
+import org.swiftbotsample.app.hardware.BotHardware;
+import org.swiftbotsample.cqrs.core.CancellationToken;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays {@link LightAnimation}s on the underlights at a fixed frame rate.
+ * <p>
+ * Frame {@code i} is due at {@code start + i * period}, so the time spent in hardware calls does not add up as drift.
+ * A frame sent more than a quarter period after it was due counts as late. When playback has fallen a whole period
+ * behind, frames whose slot has already passed are dropped, so an effect keeps its length.
+ * <p>
+ * Not thread-safe: a player belongs to the thread that drives the lights. Statistics accumulate over all animations played.
+ */
+public final class AnimationPlayer {
+    private final BotHardware api;
+    private final long frameNanos;
+    private final long lateNanos;
+    private final int[] frameColors = new int[LightAnimation.LIGHT_COUNT * 3];
+
+    private long framesShown;
+    private long framesDropped;
+    private long framesLate;
+    private long maxLatenessNanos;
+
+    public AnimationPlayer(BotHardware api, long frameMillis) {
+        if (frameMillis <= 0) {
+            throw new IllegalArgumentException("Frame time must be positive: " + frameMillis);
+        }
+        this.api = api;
+        this.frameNanos = TimeUnit.MILLISECONDS.toNanos(frameMillis);
+        this.lateNanos = frameNanos / 4;
+    }
+
+    /**
+     * Plays the animation to the end, holding its last frame for one period.
+     * @return true if the token was cancelled, in which case playback stopped early
+     */
+    public boolean play(LightAnimation animation, CancellationToken cancellation) throws InterruptedException {
+        int frameCount = animation.getFrameCount();
+        long start = System.nanoTime();
+        int frame = 0;
+        while (frame < frameCount) {
+            long lateness = System.nanoTime() - (start + frame * frameNanos);
+            if (lateness >= frameNanos) {
+                //This frame's slot is over, skip to the frame that is due now
+                int behind = (int) Math.min(lateness / frameNanos, frameCount - frame);
+                framesDropped += behind;
+                frame += behind;
+                continue;
+            }
+
+            if (lateness > lateNanos) {
+                framesLate++;
+            }
+            maxLatenessNanos = Math.max(maxLatenessNanos, lateness);
+            showFrame(animation, frame);
+            framesShown++;
+            frame++;
+
+            long wait = start + frame * frameNanos - System.nanoTime();
+            if (wait > 0 ? cancellation.sleep(wait, TimeUnit.NANOSECONDS) : cancellation.isCancellationRequested()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sends one frame as a single whole-frame update, which an {@code UnderlightCache} reduces to the lights that change.
+     */
+    public void showFrame(LightAnimation animation, int frame) {
+        animation.copyFrame(frame, frameColors);
+        api.setUnderlights(LightAnimation.UNDERLIGHTS, frameColors);
+    }
+
+    public long getFramesShown() {
+        return framesShown;
+    }
+
+    /**
+     * Frames skipped because playback fell a whole period behind.
+     */
+    public long getFramesDropped() {
+        return framesDropped;
+    }
+
+    /**
+     * Frames shown, but more than a quarter period after they were due.
+     */
+    public long getFramesLate() {
+        return framesLate;
+    }
+
+    public double getMaxLatenessMillis() {
+        return maxLatenessNanos / 1e6;
+    }
+}
@@ -0,0 +1,82 @@
+package org.swiftbotsample.app.lights;
+
+import swiftbot.Underlight;
+
+/**
+ * A light effect compiled into frames: one RGB color per underlight per frame, kept in a single primitive buffer.
+ * Animations are immutable and built once, so playing one computes and allocates nothing.
+ */
+public final class LightAnimation {
+    /**
+     * The underlights in the order of a frame's colors, going around the bot from the front left.
+     */
+    public static final Underlight[] UNDERLIGHTS = {
+            Underlight.FRONT_LEFT,
+            Underlight.MIDDLE_LEFT,
+            Underlight.BACK_LEFT,
+            Underlight.BACK_RIGHT,
+            Underlight.MIDDLE_RIGHT,
+            Underlight.FRONT_RIGHT
+    };
+    public static final int LIGHT_COUNT = UNDERLIGHTS.length;
+    private static final int CHANNELS = 3;
+
+    /**
+     * Computes the color of one underlight in one frame, at compile time only.
+     */
+    @FunctionalInterface
+    public interface FrameFunction {
+        /**
+         * @param light index into {@link #UNDERLIGHTS}
+         * @param rgb receives red, green and blue, each 0 to 255
+         */
+        void color(int frame, int light, int[] rgb);
+    }
+
+    private final String name;
+    private final int frameCount;
+    private final int[] buffer;
+
+    private LightAnimation(String name, int frameCount, int[] buffer) {
+        this.name = name;
+        this.frameCount = frameCount;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Evaluates {@code function} for every frame and underlight and stores the results.
+     */
+    public static LightAnimation compile(String name, int frameCount, FrameFunction function) {
+        if (frameCount <= 0) {
+            throw new IllegalArgumentException("Frame count must be positive: " + frameCount);
+        }
+        int[] buffer = new int[frameCount * LIGHT_COUNT * CHANNELS];
+        int[] rgb = new int[CHANNELS];
+        for (int frame = 0; frame < frameCount; frame++) {
+            for (int light = 0; light < LIGHT_COUNT; light++) {
+                rgb[0] = rgb[1] = rgb[2] = 0;
+                function.color(frame, light, rgb);
+                int offset = (frame * LIGHT_COUNT + light) * CHANNELS;
+                for (int channel = 0; channel < CHANNELS; channel++) {
+                    buffer[offset + channel] = Math.max(0, Math.min(255, rgb[channel]));
+                }
+            }
+        }
+        return new LightAnimation(name, frameCount, buffer);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Copies all colors of {@code frame} into {@code rgb}, three values per light.
+     */
+    public void copyFrame(int frame, int[] rgb) {
+        System.arraycopy(buffer, frame * LIGHT_COUNT * CHANNELS, rgb, 0, LIGHT_COUNT * CHANNELS);
+    }
+}
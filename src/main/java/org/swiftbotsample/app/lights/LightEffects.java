@@ -0,0 +1,97 @@
+package org.swiftbotsample.app.lights;
+
+/**
+ * The light show's effects, described as functions of frame and underlight and compiled into {@link LightAnimation}s.
+ */
+public final class LightEffects {
+
+    private LightEffects() {
+    }
+
+    /**
+     * Lights the underlights one after another in {@code color}, going around the bot {@code repeats} times.
+     */
+    public static LightAnimation chase(int[] color, int repeats) {
+        return LightAnimation.compile("chase", repeats * LightAnimation.LIGHT_COUNT, (frame, light, rgb) -> {
+            if (frame % LightAnimation.LIGHT_COUNT == light) {
+                System.arraycopy(color, 0, rgb, 0, 3);
+            }
+        });
+    }
+
+    /**
+     * Cycles every underlight through the hues in {@code steps} frames, spread out so the rainbow circles the bot.
+     */
+    public static LightAnimation rainbow(int steps) {
+        int spread = steps / LightAnimation.LIGHT_COUNT;
+        return LightAnimation.compile("rainbow cycle", steps, (frame, light, rgb) -> {
+            float hue = (float) ((frame + light * spread) % steps) / steps;
+            System.arraycopy(hsvToRgb(hue, 1.0f, 1.0f), 0, rgb, 0, 3);
+        });
+    }
+
+    /**
+     * Sweeps a blue wave across the underlights and back out, {@code repeats} times.
+     */
+    public static LightAnimation wave(int repeats) {
+        int phases = LightAnimation.LIGHT_COUNT * 2;
+        return LightAnimation.compile("wave", repeats * phases, (frame, light, rgb) -> {
+            int distance = Math.abs(frame % phases - light);
+            int brightness = Math.max(0, Math.min(255, 255 - distance * 60));
+            rgb[0] = brightness;
+            rgb[1] = brightness;
+            rgb[2] = 255;
+        });
+    }
+
+    /**
+     * Converts a color from hue, saturation and value, each 0 to 1, to red, green and blue, each 0 to 255.
+     */
+    public static int[] hsvToRgb(float h, float s, float v) {
+        int r, g, b;
+
+        int i = (int) Math.floor(h * 6);
+        float f = h * 6 - i;
+        int p = Math.round(v * (1 - s) * 255);
+        int q = Math.round(v * (1 - f * s) * 255);
+        int t = Math.round(v * (1 - (1 - f) * s) * 255);
+        int vi = Math.round(v * 255);
+
+        switch (i % 6) {
+            case 0:
+                r = vi;
+                g = t;
+                b = p;
+                break;
+            case 1:
+                r = q;
+                g = vi;
+                b = p;
+                break;
+            case 2:
+                r = p;
+                g = vi;
+                b = t;
+                break;
+            case 3:
+                r = p;
+                g = q;
+                b = vi;
+                break;
+            case 4:
+                r = t;
+                g = p;
+                b = vi;
+                break;
+            case 5:
+                r = vi;
+                g = p;
+                b = q;
+                break;
+            default:
+                r = g = b = 0;
+                break;
+        }
+        return new int[]{r, g, b};
+    }
+}
@@ -0,0 +1,175 @@
+package org.swiftbotsample.app.motion;
+
+import org.swiftbotsample.app.camera.FrameBroker;
+import org.swiftbotsample.app.hardware.BotHardware;
+import org.swiftbotsample.cqrs.core.CancellationToken;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Measures how fast the bot turns at each motor speed, using the camera as the only sensor that sees rotation.
+ * <p>
+ * For each speed the bot turns in short pulses of two lengths and compares a still taken before and after each pulse.
+ * The horizontal shift of the scene, through the camera's field of view, gives the angle. A least-squares line
+ * {@code angle = rate * (time - startLag)} through all pulses of a speed gives its rate and start lag.
+ * Pulses alternate left and right so the bot ends up where it started.
+ * The bot should face a textured, static scene a meter or more away.
+ */
+public final class TurnCalibrator {
+    public static final double DEFAULT_HORIZONTAL_FOV = 62.2; //degrees, Raspberry Pi camera module v2
+
+    private static final Logger LOGGER = Logger.getLogger(TurnCalibrator.class.getName());
+    private static final double SHORT_PULSE_ANGLE = 10.0; //degrees
+    private static final double LONG_PULSE_ANGLE = 20.0; //degrees
+    private static final long MIN_PULSE = 40; //ms
+    private static final long SETTLE_TIME = 300; //ms
+    private static final int PULSES = 4; //Even, so alternating pulses cancel out
+    private static final int SAMPLE_STEP = 2; //pixels between compared samples
+    private static final int PASSES = 2;
+
+    private final BotHardware api;
+    private final FrameBroker frameBroker;
+    private final double horizontalFov;
+
+    public TurnCalibrator(BotHardware api, FrameBroker frameBroker) {
+        this(api, frameBroker, DEFAULT_HORIZONTAL_FOV);
+    }
+
+    public TurnCalibrator(BotHardware api, FrameBroker frameBroker, double horizontalFov) {
+        this.api = api;
+        this.frameBroker = frameBroker;
+        this.horizontalFov = horizontalFov;
+    }
+
+    /**
+     * Calibrates the given speeds, starting from {@code profile} to size the first pulses.
+     * Speeds that cannot be measured keep their previous value.
+     * @return the updated profile, with whatever was measured before a cancellation
+     */
+    public TurnProfile calibrate(TurnProfile profile, int[] speeds, CancellationToken cancellation) throws InterruptedException {
+        //Pulse length and measured angle of every pulse, per speed
+        Map<Integer, List<double[]>> pulses = new HashMap<>();
+
+        //The second pass sizes its pulses from the first pass' rates, so the shifts stay well inside the frame
+        for (int pass = 0; pass < PASSES; pass++) {
+            for (int speed : speeds) {
+                long shortPulse = Math.max(MIN_PULSE, profile.turnDurationMillis(SHORT_PULSE_ANGLE, speed));
+                long longPulse = Math.max(2 * shortPulse, profile.turnDurationMillis(LONG_PULSE_ANGLE, speed));
+
+                List<double[]> measured = pulses.computeIfAbsent(speed, key -> new ArrayList<>());
+                measurePulses(speed, shortPulse, measured, cancellation);
+                measurePulses(speed, longPulse, measured, cancellation);
+                if (cancellation.isCancellationRequested()) {
+                    return profile;
+                }
+
+                //Least-squares line through (pulse length, angle)
+                double meanTime = 0.0;
+                double meanAngle = 0.0;
+                for (double[] pulse : measured) {
+                    meanTime += pulse[0] / measured.size();
+                    meanAngle += pulse[1] / measured.size();
+                }
+                double covariance = 0.0;
+                double variance = 0.0;
+                for (double[] pulse : measured) {
+                    covariance += (pulse[0] - meanTime) * (pulse[1] - meanAngle);
+                    variance += (pulse[0] - meanTime) * (pulse[0] - meanTime);
+                }
+                double rate = covariance / variance * 1000.0;
+                if (Double.isNaN(rate) || rate <= 0) {
+                    LOGGER.warning("Could not measure the turn rate at speed " + speed + " from " + measured.size() + " pulses");
+                    continue;
+                }
+                double startLag = Math.max(0.0, meanTime - meanAngle * 1000.0 / rate);
+                LOGGER.info(String.format("Speed %d: %.1f deg/s after %.0f ms, from %d pulses", speed, rate, startLag, measured.size()));
+                profile = profile.withRate(speed, rate, startLag);
+            }
+        }
+        return profile;
+    }
+
+    //Adds the pulse length and angle of each pulse that could be measured
+    private void measurePulses(int speed, long pulseMillis, List<double[]> measured, CancellationToken cancellation) throws InterruptedException {
+        for (int i = 0; i < PULSES && !cancellation.isCancellationRequested(); i++) {
+            BufferedImage before = frameBroker.captureStill(frameBroker.getImageSize());
+            int direction = i % 2 == 0 ? 1 : -1;
+            api.startMove(direction * speed, -direction * speed);
+            try {
+                cancellation.sleep(pulseMillis);
+            } finally {
+                api.stopMove();
+            }
+            cancellation.sleep(SETTLE_TIME);
+            BufferedImage after = frameBroker.captureStill(frameBroker.getImageSize());
+            if (before == null || after == null) {
+                continue;
+            }
+
+            //Turning right moves the scene left in the image
+            int maxShift = before.getWidth() / 2;
+            int shift = estimateShift(before, after, direction > 0 ? -maxShift : 0, direction > 0 ? 0 : maxShift);
+            if (Math.abs(shift) >= maxShift - SAMPLE_STEP) {
+                continue; //Best match at the edge of the search, the scene moved further than we can see
+            }
+            measured.add(new double[]{pulseMillis, Math.abs(shift) * horizontalFov / before.getWidth()});
+        }
+    }
+
+    /**
+     * Horizontal shift in pixels, between {@code minShift} and {@code maxShift}, that best aligns {@code after} with
+     * {@code before}: the one with the smallest mean brightness difference over the overlapping part of the stills.
+     * Comparing whole images rather than column profiles keeps repetitive patterns, such as a striped wall, from
+     * matching at the wrong shift.
+     */
+    static int estimateShift(BufferedImage before, BufferedImage after, int minShift, int maxShift) {
+        int[][] a = brightness(before);
+        int[][] b = brightness(after);
+        int rows = Math.min(a.length, b.length);
+        int columns = Math.min(a[0].length, b[0].length);
+        int minStep = Math.max(-(columns / 2), Math.floorDiv(minShift, SAMPLE_STEP));
+        int maxStep = Math.min(columns / 2, maxShift / SAMPLE_STEP);
+
+        int bestStep = 0;
+        long bestCost = Long.MAX_VALUE;
+        for (int step = minStep; step <= maxStep; step++) {
+            int from = Math.max(0, -step);
+            int to = Math.min(columns, columns - step);
+            long cost = 0;
+            for (int y = 0; y < rows; y++) {
+                int[] rowA = a[y];
+                int[] rowB = b[y];
+                for (int x = from; x < to; x++) {
+                    cost += Math.abs(rowA[x] - rowB[x + step]);
+                }
+            }
+            //Mean over the overlap, scaled to stay an integer
+            cost = cost * 1024 / ((long) (to - from) * rows);
+            if (cost < bestCost) {
+                bestCost = cost;
+                bestStep = step;
+            }
+        }
+        return bestStep * SAMPLE_STEP;
+    }
+
+    //Brightness of every SAMPLE_STEP-th pixel in both directions
+    private static int[][] brightness(BufferedImage image) {
+        int width = image.getWidth();
+        int[][] samples = new int[image.getHeight() / SAMPLE_STEP][width / SAMPLE_STEP];
+        int[] row = new int[width];
+        for (int y = 0; y < samples.length; y++) {
+            image.getRGB(0, y * SAMPLE_STEP, width, 1, row, 0, width);
+            for (int x = 0; x < samples[y].length; x++) {
+                int rgb = row[x * SAMPLE_STEP];
+                samples[y][x] = ((rgb >> 16) & 0xFF) + ((rgb >> 8) & 0xFF) + (rgb & 0xFF);
+            }
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,148 @@
+package org.swiftbotsample.app.motion;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * How fast the bot turns on the spot, measured per motor speed.
+ * <p>
+ * A turn of {@code angle} degrees at a calibrated speed takes {@code startLag + angle / rate}: the motors need a moment
+ * before the bot actually rotates, after that it turns at a roughly constant rate. Speeds in between calibrated ones are
+ * interpolated linearly. An uncalibrated profile falls back to the original estimate of 90 degrees per 300 ms.
+ * Profiles are immutable.
+ */
+public final class TurnProfile {
+    public static final double DEFAULT_RATE = 300.0; //degrees per second
+    public static final TurnProfile DEFAULT = new TurnProfile(new TreeMap<>());
+
+    private final TreeMap<Integer, TurnRate> rates;
+
+    private TurnProfile(TreeMap<Integer, TurnRate> rates) {
+        this.rates = rates;
+    }
+
+    /**
+     * A copy of this profile with the measurement for one speed added or replaced.
+     */
+    public TurnProfile withRate(int speed, double degreesPerSecond, double startLagMillis) {
+        if (speed <= 0 || !(degreesPerSecond > 0) || !(startLagMillis >= 0)) {
+            throw new IllegalArgumentException("Invalid turn rate " + degreesPerSecond + " deg/s after "
+                    + startLagMillis + " ms at speed " + speed);
+        }
+        TreeMap<Integer, TurnRate> copy = new TreeMap<>(rates);
+        copy.put(speed, new TurnRate(degreesPerSecond, startLagMillis));
+        return new TurnProfile(copy);
+    }
+
+    public boolean isCalibrated() {
+        return !rates.isEmpty();
+    }
+
+    /**
+     * Time needed to turn by {@code angle} degrees, either direction, at the given motor speed.
+     */
+    public long turnDurationMillis(double angle, int speed) {
+        if (angle == 0) {
+            return 0;
+        }
+        TurnRate rate = rateAt(Math.abs(speed));
+        return Math.round(rate.startLagMillis + Math.abs(angle) * 1000.0 / rate.degreesPerSecond);
+    }
+
+    /**
+     * Angle turned after running the motors for {@code millis} at the given speed, the inverse of
+     * {@link #turnDurationMillis(double, int)}.
+     */
+    public double angleAfter(long millis, int speed) {
+        TurnRate rate = rateAt(Math.abs(speed));
+        return Math.max(0.0, millis - rate.startLagMillis) * rate.degreesPerSecond / 1000.0;
+    }
+
+    private TurnRate rateAt(int speed) {
+        if (rates.isEmpty()) {
+            return new TurnRate(DEFAULT_RATE, 0.0);
+        }
+        Map.Entry<Integer, TurnRate> below = rates.floorEntry(speed);
+        Map.Entry<Integer, TurnRate> above = rates.ceilingEntry(speed);
+        if (below == null) {
+            return above.getValue();
+        }
+        if (above == null || above.getKey().equals(below.getKey())) {
+            return below.getValue();
+        }
+        double t = (double) (speed - below.getKey()) / (above.getKey() - below.getKey());
+        TurnRate low = below.getValue();
+        TurnRate high = above.getValue();
+        return new TurnRate(low.degreesPerSecond + t * (high.degreesPerSecond - low.degreesPerSecond),
+                low.startLagMillis + t * (high.startLagMillis - low.startLagMillis));
+    }
+
+    /**
+     * Reads a profile written by {@link #save(Path)}, or returns {@link #DEFAULT} if the file does not exist.
+     */
+    public static TurnProfile load(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return DEFAULT;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(in);
+        }
+
+        TurnProfile profile = DEFAULT;
+        for (String key : properties.stringPropertyNames()) {
+            if (!key.startsWith("speed.") || !key.endsWith(".rate")) {
+                continue;
+            }
+            String speed = key.substring("speed.".length(), key.length() - ".rate".length());
+            try {
+                profile = profile.withRate(Integer.parseInt(speed),
+                        Double.parseDouble(properties.getProperty(key)),
+                        Double.parseDouble(properties.getProperty("speed." + speed + ".lag", "0")));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid turn profile entry " + key + " in " + path, e);
+            }
+        }
+        return profile;
+    }
+
+    public void save(Path path) throws IOException {
+        Properties properties = new Properties();
+        for (Map.Entry<Integer, TurnRate> entry : rates.entrySet()) {
+            properties.setProperty("speed." + entry.getKey() + ".rate", Double.toString(entry.getValue().degreesPerSecond));
+            properties.setProperty("speed." + entry.getKey() + ".lag", Double.toString(entry.getValue().startLagMillis));
+        }
+        try (OutputStream out = Files.newOutputStream(path)) {
+            properties.store(out, "SwiftBot turn calibration: degrees per second and start lag in ms per motor speed");
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("TurnProfile{");
+        for (Map.Entry<Integer, TurnRate> entry : rates.entrySet()) {
+            if (sb.length() > "TurnProfile{".length()) {
+                sb.append(", ");
+            }
+            sb.append(entry.getKey()).append(": ")
+                    .append(String.format("%.1f deg/s after %.0f ms", entry.getValue().degreesPerSecond, entry.getValue().startLagMillis));
+        }
+        return sb.append('}').toString();
+    }
+
+    private static final class TurnRate {
+        final double degreesPerSecond;
+        final double startLagMillis;
+
+        TurnRate(double degreesPerSecond, double startLagMillis) {
+            this.degreesPerSecond = degreesPerSecond;
+            this.startLagMillis = startLagMillis;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.swiftbotsample.app.motion;
+
+import org.swiftbotsample.app.hardware.BotHardware;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A turn on the spot that runs in the background: the motors are started right away and the caller decides when to
+ * look again, so it can keep reacting to sensors and stop the turn early.
+ * Not thread-safe: a segment belongs to the thread that drives the motors.
+ */
+public final class TurnSegment {
+    private final BotHardware api;
+    private final TurnProfile profile;
+    private final double angle;
+    private final int speed;
+    private final long startTime;
+    private final long durationNanos;
+    private long stopTime;
+
+    private TurnSegment(BotHardware api, TurnProfile profile, double angle, int speed) {
+        this.api = api;
+        this.profile = profile;
+        this.angle = angle;
+        this.speed = speed;
+        this.durationNanos = TimeUnit.MILLISECONDS.toNanos(profile.turnDurationMillis(angle, speed));
+        this.startTime = System.nanoTime();
+    }
+
+    /**
+     * Starts turning by {@code angle} degrees, negative to the left, positive to the right.
+     */
+    public static TurnSegment start(BotHardware api, TurnProfile profile, double angle, int speed) {
+        TurnSegment segment = new TurnSegment(api, profile, angle, speed);
+        if (angle < 0) {
+            api.startMove(-speed, speed);
+        } else if (angle > 0) {
+            api.startMove(speed, -speed);
+        }
+        return segment;
+    }
+
+    public double getAngle() {
+        return angle;
+    }
+
+    public boolean isRunning() {
+        return stopTime == 0;
+    }
+
+    /**
+     * Time left until the planned angle is reached, 0 once it is due.
+     */
+    public long remainingMillis() {
+        long remaining = startTime + durationNanos - System.nanoTime();
+        return remaining <= 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(remaining) + 1;
+    }
+
+    /**
+     * Stops the motors, whether or not the planned angle was reached.
+     * @return the angle turned so far according to the profile, with the sign of the planned angle
+     */
+    public double stop() {
+        if (stopTime == 0) {
+            api.stopMove();
+            stopTime = System.nanoTime();
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(stopTime - startTime);
+        double turned = Math.min(Math.abs(angle), profile.angleAfter(elapsed, speed));
+        return Math.copySign(turned, angle);
+    }
+}
@@ -0,0 +1,24 @@
+package org.swiftbotsample.app.stores;
+
+/**
+ * Puts the default button callbacks back after a command bound the buttons to its own.
+ * The button listener registers how to rebind them, commands that take over the buttons call {@link #restoreDefaults()}
+ * when they end.
+ */
+public class ButtonBindingStore {
+    private static Runnable defaultBinding;
+
+    public static synchronized void setDefaultBinding(Runnable binding) {
+        defaultBinding = binding;
+    }
+
+    public static void restoreDefaults() {
+        Runnable binding;
+        synchronized (ButtonBindingStore.class) {
+            binding = defaultBinding;
+        }
+        if (binding != null) {
+            binding.run();
+        }
+    }
+}
@@ -1,15 +1,97 @@
 package org.swiftbotsample.app.stores;
 
+import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.SecureRandom;
 
+/**
+ * Holds the last captured image as an immutable, versioned snapshot.
+ * The JPEG encoding is produced at most once per capture and shared by every request that serves it.
+ */
 public class ImageStore {
-    private static BufferedImage lastCapturedImage;
+    //Versions restart with every run, so entity tags carry a per-run prefix to stay unique across restarts
+    private static final String RUN_ID = Long.toHexString(new SecureRandom().nextLong());
+    private static volatile Snapshot lastSnapshot;
+    private static long nextVersion = 1;
 
+    /**
+     * Stores a new capture. The image must not be modified afterwards.
+     */
     public static synchronized void setLastCapturedImage(BufferedImage image) {
-        lastCapturedImage = image;
+        lastSnapshot = image != null ? new Snapshot(image, nextVersion++) : null;
     }
 
-    public static synchronized BufferedImage getLastCapturedImage() {
-        return lastCapturedImage;
+    public static BufferedImage getLastCapturedImage() {
+        Snapshot snapshot = lastSnapshot;
+        return snapshot != null ? snapshot.getImage() : null;
     }
-}
\ No newline at end of file
+
+    /**
+     * @return the latest capture, or null if nothing has been captured yet
+     */
+    public static Snapshot getSnapshot() {
+        return lastSnapshot;
+    }
+
+    /**
+     * One capture and its lazily encoded JPEG bytes.
+     */
+    public static final class Snapshot {
+        private final BufferedImage image;
+        private final long version;
+        private volatile byte[] jpeg;
+
+        private Snapshot(BufferedImage image, long version) {
+            this.image = image;
+            this.version = version;
+        }
+
+        public BufferedImage getImage() {
+            return image;
+        }
+
+        /**
+         * Increases with every capture.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Strong entity tag for this capture, usable in ETag and If-None-Match headers. Never repeats across restarts.
+         */
+        public String getETag() {
+            return "\"img-" + RUN_ID + "-" + version + "\"";
+        }
+
+        /**
+         * The JPEG encoding, produced on the first call. Callers must not modify the returned array.
+         */
+        public byte[] getJpegBytes() {
+            byte[] bytes = jpeg;
+            if (bytes == null) {
+                synchronized (this) {
+                    bytes = jpeg;
+                    if (bytes == null) {
+                        bytes = encode(image);
+                        jpeg = bytes;
+                    }
+                }
+            }
+            return bytes;
+        }
+
+        private static byte[] encode(BufferedImage image) {
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+                ImageIO.write(image, "JPEG", out);
+                return out.toByteArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to encode image", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.swiftbotsample.app.stores;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Effective sampling rates of the navigation sensor monitors, in Hz, for display and metrics.
+ */
+public class SensorRateStore {
+    public static final String ULTRASONIC = "ultrasonic";
+    public static final String CAMERA = "camera";
+    public static final String STUCK_CHECK = "stuck_check";
+
+    private static final Map<String, Double> rates = new ConcurrentHashMap<>();
+
+    public static void setRate(String sensor, double rate) {
+        rates.put(sensor, rate);
+    }
+
+    public static double getRate(String sensor) {
+        return rates.getOrDefault(sensor, 0.0);
+    }
+}
@@ -0,0 +1,39 @@
+package org.swiftbotsample.app.stores;
+
+import org.swiftbotsample.app.motion.TurnProfile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The bot's turn calibration, loaded from and saved to {@code turn-profile.properties} in the working directory,
+ * or the file named by the {@code swiftbot.turnProfile} system property.
+ */
+public class TurnProfileStore {
+    private static TurnProfile profile;
+
+    public static synchronized TurnProfile getProfile() {
+        if (profile == null) {
+            try {
+                profile = TurnProfile.load(getPath());
+            } catch (IOException e) {
+                System.out.println("Failed to load turn profile, using the default turn rate: " + e.getMessage());
+                profile = TurnProfile.DEFAULT;
+            }
+        }
+        return profile;
+    }
+
+    /**
+     * Replaces the profile and persists it. The new profile is used even if saving fails.
+     */
+    public static synchronized void setProfile(TurnProfile newProfile) throws IOException {
+        profile = newProfile;
+        newProfile.save(getPath());
+    }
+
+    public static Path getPath() {
+        return Paths.get(System.getProperty("swiftbot.turnProfile", "turn-profile.properties"));
+    }
+}
@@ -0,0 +1,161 @@
+package org.swiftbotsample.app.vision;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+
+/**
+ * Counts edge pixels in the lower half of a grayscale frame, split into left, center and right regions.
+ * <p>
+ * A pixel is an edge when the absolute difference to its right neighbour plus the one to its bottom neighbour exceeds
+ * the threshold. Gray values are those {@link BufferedImage#getRGB(int, int)} reports in the red channel, so the counts
+ * match the original per-pixel implementation exactly; byte-backed grayscale frames are read straight from the raster
+ * through a 256-entry lookup table instead of converting every pixel through the color model.
+ */
+public final class EdgeDetector {
+    public static final int LEFT = 0;
+    public static final int CENTER = 1;
+    public static final int RIGHT = 2;
+    public static final int REGIONS = 3;
+
+    //Lookup table of the last color model seen; frames from the camera all share one
+    private static volatile GrayTable grayTable;
+
+    private EdgeDetector() {
+    }
+
+    /**
+     * @return edge counts indexed by {@link #LEFT}, {@link #CENTER} and {@link #RIGHT}
+     */
+    public static int[] countEdges(BufferedImage image, int threshold) {
+        return countEdges(image, threshold, image.getHeight() / 2, image.getHeight() - 1);
+    }
+
+    /**
+     * Counts edges for the rows {@code fromRow} (inclusive) to {@code toRow} (exclusive) of the lower-half scan,
+     * so a frame can be split into bands whose counts add up to {@link #countEdges(BufferedImage, int)}.
+     */
+    public static int[] countEdges(BufferedImage image, int threshold, int fromRow, int toRow) {
+        int[] edgeCount = new int[REGIONS];
+        Raster raster = image.getRaster();
+        if (image.getWidth() >= REGIONS && isDirectlyReadable(raster)) {
+            countDirect(image, raster, threshold, fromRow, toRow, edgeCount);
+        } else {
+            countWithGetRGB(image, threshold, fromRow, toRow, edgeCount);
+        }
+        return edgeCount;
+    }
+
+    /**
+     * The original per-pixel implementation, reading every pixel through {@link BufferedImage#getRGB(int, int)}.
+     * Kept as the reference for other formats and for verifying the direct path.
+     */
+    public static int[] countEdgesWithGetRGB(BufferedImage image, int threshold) {
+        int[] edgeCount = new int[REGIONS];
+        countWithGetRGB(image, threshold, image.getHeight() / 2, image.getHeight() - 1, edgeCount);
+        return edgeCount;
+    }
+
+    private static void countWithGetRGB(BufferedImage image, int threshold, int fromRow, int toRow, int[] edgeCount) {
+        int width = image.getWidth();
+        int regionWidth = width / REGIONS;
+
+        for (int y = fromRow; y < toRow; y++) {
+            for (int x = 1; x < width - 1; x++) {
+                int currentPixel = (image.getRGB(x, y) >> 16) & 0xFF;
+                int rightPixel = (image.getRGB(x + 1, y) >> 16) & 0xFF;
+                int bottomPixel = (image.getRGB(x, y + 1) >> 16) & 0xFF;
+
+                int magnitude = Math.abs(currentPixel - rightPixel) + Math.abs(currentPixel - bottomPixel);
+                if (magnitude > threshold) {
+                    edgeCount[Math.min(x / regionWidth, REGIONS - 1)]++;
+                }
+            }
+        }
+    }
+
+    static boolean isDirectlyReadable(Raster raster) {
+        if (!(raster.getDataBuffer() instanceof DataBufferByte)
+                || !(raster.getSampleModel() instanceof PixelInterleavedSampleModel)
+                || raster.getNumBands() != 1) {
+            return false;
+        }
+        PixelInterleavedSampleModel sampleModel = (PixelInterleavedSampleModel) raster.getSampleModel();
+        return sampleModel.getPixelStride() == 1;
+    }
+
+    private static void countDirect(BufferedImage image, Raster raster, int threshold, int fromRow, int toRow, int[] edgeCount) {
+        int width = image.getWidth();
+        int regionWidth = width / REGIONS;
+        int[] gray = grayTable(image.getColorModel());
+
+        PixelInterleavedSampleModel sampleModel = (PixelInterleavedSampleModel) raster.getSampleModel();
+        DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
+        byte[] data = buffer.getData();
+        int stride = sampleModel.getScanlineStride();
+        int origin = buffer.getOffset() + sampleModel.getBandOffsets()[0]
+                - raster.getSampleModelTranslateY() * stride - raster.getSampleModelTranslateX();
+
+        //Region boundaries, equivalent to min(x / regionWidth, 2)
+        int centerStart = regionWidth;
+        int rightStart = 2 * regionWidth;
+        int end = width - 1;
+
+        int left = 0;
+        int center = 0;
+        int right = 0;
+        for (int y = fromRow; y < toRow; y++) {
+            int row = origin + y * stride;
+            int x = 1;
+            int current = gray[data[row + x] & 0xFF];
+            for (; x < end; x++) {
+                int index = row + x;
+                int rightPixel = gray[data[index + 1] & 0xFF];
+                int bottomPixel = gray[data[index + stride] & 0xFF];
+
+                if (Math.abs(current - rightPixel) + Math.abs(current - bottomPixel) > threshold) {
+                    if (x >= rightStart) {
+                        right++;
+                    } else if (x >= centerStart) {
+                        center++;
+                    } else {
+                        left++;
+                    }
+                }
+                current = rightPixel;
+            }
+        }
+
+        edgeCount[LEFT] += left;
+        edgeCount[CENTER] += center;
+        edgeCount[RIGHT] += right;
+    }
+
+    //Maps raw samples to the red channel getRGB reports for them, which is not the identity for linear gray
+    static int[] grayTable(ColorModel colorModel) {
+        GrayTable table = grayTable;
+        if (table == null || table.colorModel != colorModel) {
+            int[] values = new int[256];
+            byte[] sample = new byte[1];
+            for (int value = 0; value < values.length; value++) {
+                sample[0] = (byte) value;
+                values[value] = (colorModel.getRGB(sample) >> 16) & 0xFF;
+            }
+            table = new GrayTable(colorModel, values);
+            grayTable = table;
+        }
+        return table.values;
+    }
+
+    private static final class GrayTable {
+        final ColorModel colorModel;
+        final int[] values;
+
+        GrayTable(ColorModel colorModel, int[] values) {
+            this.colorModel = colorModel;
+            this.values = values;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.swiftbotsample.app.vision;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Decides from one grayscale frame whether an obstacle is ahead and on which side.
+ * <p>
+ * An obstacle is reported when the edge density of the lower half of the frame exceeds
+ * {@link #EDGE_DENSITY_THRESHOLD}; its side is the region, left or right, with more edges.
+ */
+public final class ObstacleDetector {
+    public static final int EDGE_THRESHOLD = 50;
+    public static final double EDGE_DENSITY_THRESHOLD = 0.05;
+
+    private final ParallelEdgeDetector edgeDetector;
+
+    public ObstacleDetector() {
+        this(new ParallelEdgeDetector());
+    }
+
+    public ObstacleDetector(ParallelEdgeDetector edgeDetector) {
+        this.edgeDetector = edgeDetector;
+    }
+
+    public Result detect(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        //Count edges in the lower half of the image, divided into left, center, and right regions
+        int[] edgeCount = edgeDetector.countEdges(image, EDGE_THRESHOLD);
+
+        int totalEdgeCount = edgeCount[EdgeDetector.LEFT] + edgeCount[EdgeDetector.CENTER] + edgeCount[EdgeDetector.RIGHT];
+        double edgeDensity = (double) totalEdgeCount / ((height / 2) * width);
+        if (edgeDensity <= EDGE_DENSITY_THRESHOLD) {
+            return new Result(false, 0.0, edgeCount);
+        }
+
+        if (edgeCount[EdgeDetector.LEFT] > edgeCount[EdgeDetector.RIGHT]) {
+            return new Result(true, -1.0, edgeCount); //Obstacle on the left
+        } else if (edgeCount[EdgeDetector.RIGHT] > edgeCount[EdgeDetector.LEFT]) {
+            return new Result(true, 1.0, edgeCount); //Obstacle on the right
+        }
+        return new Result(true, 0.0, edgeCount); //Obstacle straight ahead
+    }
+
+    public static final class Result {
+        private final boolean obstacleDetected;
+        private final double direction; //-1.0 for left, 1.0 for right, 0.0 for straight ahead
+        private final int[] edgeCount;
+
+        Result(boolean obstacleDetected, double direction, int[] edgeCount) {
+            this.obstacleDetected = obstacleDetected;
+            this.direction = direction;
+            this.edgeCount = edgeCount;
+        }
+
+        public boolean isObstacleDetected() {
+            return obstacleDetected;
+        }
+
+        public double getDirection() {
+            return direction;
+        }
+
+        /**
+         * @param region {@link EdgeDetector#LEFT}, {@link EdgeDetector#CENTER} or {@link EdgeDetector#RIGHT}
+         */
+        public int getEdgeCount(int region) {
+            return edgeCount[region];
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.swiftbotsample.app.vision;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts edges like {@link EdgeDetector#countEdges(BufferedImage, int)}, with the scanned rows split into bands that
+ * are counted in parallel on a fork/join pool.
+ * Every band fills its own counts and the partial counts are summed as the tasks join, so workers never share state.
+ */
+public final class ParallelEdgeDetector {
+    public static final int DEFAULT_BAND_ROWS = 32;
+
+    private final ForkJoinPool pool;
+    private final int bandRows;
+
+    /**
+     * Uses the common pool, so the calling thread works on bands as well.
+     */
+    public ParallelEdgeDetector() {
+        this(ForkJoinPool.commonPool(), DEFAULT_BAND_ROWS);
+    }
+
+    /**
+     * @param bandRows rows below which a band is counted sequentially
+     */
+    public ParallelEdgeDetector(ForkJoinPool pool, int bandRows) {
+        if (bandRows <= 0) {
+            throw new IllegalArgumentException("Band rows must be positive: " + bandRows);
+        }
+        this.pool = pool;
+        this.bandRows = bandRows;
+    }
+
+    /**
+     * @return edge counts indexed by {@link EdgeDetector#LEFT}, {@link EdgeDetector#CENTER} and {@link EdgeDetector#RIGHT}
+     */
+    public int[] countEdges(BufferedImage image, int threshold) {
+        int fromRow = image.getHeight() / 2;
+        int toRow = image.getHeight() - 1;
+        if (toRow - fromRow <= bandRows) {
+            return EdgeDetector.countEdges(image, threshold, fromRow, toRow);
+        }
+        return pool.invoke(new BandTask(image, threshold, fromRow, toRow));
+    }
+
+    private final class BandTask extends RecursiveTask<int[]> {
+        private final BufferedImage image;
+        private final int threshold;
+        private final int fromRow;
+        private final int toRow;
+
+        BandTask(BufferedImage image, int threshold, int fromRow, int toRow) {
+            this.image = image;
+            this.threshold = threshold;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (toRow - fromRow <= bandRows) {
+                return EdgeDetector.countEdges(image, threshold, fromRow, toRow);
+            }
+
+            int middle = (fromRow + toRow) >>> 1;
+            BandTask upper = new BandTask(image, threshold, fromRow, middle);
+            upper.fork();
+            int[] counts = new BandTask(image, threshold, middle, toRow).compute();
+            int[] upperCounts = upper.join();
+            for (int region = 0; region < EdgeDetector.REGIONS; region++) {
+                counts[region] += upperCounts[region];
+            }
+            return counts;
+        }
+    }
+}
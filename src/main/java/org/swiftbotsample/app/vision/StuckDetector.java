@@ -0,0 +1,176 @@
+package org.swiftbotsample.app.vision;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.util.Arrays;
+
+/**
+ * Decides whether the bot is stuck from how little its camera view changes over the last few frames.
+ * <p>
+ * Each frame is reduced to a small thumbnail signature of block-averaged gray values, kept in a short ring together
+ * with its mean difference to the previous signature. The bot counts as stuck when most consecutive differences in
+ * the ring are below the threshold and the view has not drifted between the oldest and newest signature, so a single
+ * similar pair of frames is not enough. Memory is a few KB regardless of the frame size.
+ * <p>
+ * Not thread-safe: one monitor thread feeds it frames, the statistics may be read from anywhere.
+ */
+public final class StuckDetector {
+    public static final int DEFAULT_THUMBNAIL_SIZE = 32;
+    public static final int DEFAULT_HISTORY = 4;
+    public static final double DEFAULT_THRESHOLD = 5.0; //Mean gray difference per thumbnail cell
+    private static final double STUCK_CONFIDENCE = 2.0 / 3.0;
+
+    private final int thumbnailSize;
+    private final int history;
+    private final double threshold;
+
+    //Ring of signatures and the difference of each one to its predecessor
+    private final byte[][] signatures;
+    private final double[] differences;
+    private final int[] cellSums;
+    private final int[] cellCounts;
+    private int[] cellOfColumn = new int[0];
+    private int newest = -1;
+    private int count;
+
+    private volatile double stuckConfidence;
+
+    public StuckDetector() {
+        this(DEFAULT_THUMBNAIL_SIZE, DEFAULT_HISTORY, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param thumbnailSize width and height of the signature in cells
+     * @param history number of signatures kept, at least three so a decision spans two frame pairs
+     * @param threshold mean gray difference below which two consecutive frames count as unchanged
+     */
+    public StuckDetector(int thumbnailSize, int history, double threshold) {
+        if (thumbnailSize <= 0 || history < 3) {
+            throw new IllegalArgumentException("Invalid thumbnail size " + thumbnailSize + " or history " + history);
+        }
+        this.thumbnailSize = thumbnailSize;
+        this.history = history;
+        this.threshold = threshold;
+        this.signatures = new byte[history][thumbnailSize * thumbnailSize];
+        this.differences = new double[history];
+        this.cellSums = new int[thumbnailSize * thumbnailSize];
+        this.cellCounts = new int[thumbnailSize * thumbnailSize];
+    }
+
+    /**
+     * Adds the next frame while the bot is driving.
+     * @return the stuck confidence after this frame, see {@link #getStuckConfidence()}
+     */
+    public double addFrame(BufferedImage image) {
+        int slot = (newest + 1) % history;
+        computeSignature(image, signatures[slot]);
+        if (count > 0) {
+            differences[slot] = meanDifference(signatures[newest], signatures[slot]);
+        }
+        newest = slot;
+        count = Math.min(count + 1, history);
+
+        stuckConfidence = computeConfidence();
+        return stuckConfidence;
+    }
+
+    /**
+     * Forgets all frames, for when the bot stops driving forward.
+     */
+    public void reset() {
+        newest = -1;
+        count = 0;
+        stuckConfidence = 0.0;
+    }
+
+    /**
+     * Share of consecutive frame pairs in a full ring that were unchanged, from 0 to 1.
+     */
+    public double getStuckConfidence() {
+        return stuckConfidence;
+    }
+
+    public boolean isStuck() {
+        return stuckConfidence >= STUCK_CONFIDENCE;
+    }
+
+    private double computeConfidence() {
+        int pairs = count - 1;
+        if (pairs == 0) {
+            return 0.0;
+        }
+
+        //Slow, steady progress shows up as drift between the ends of the ring even when every step is small
+        int oldest = (newest - pairs + history) % history;
+        if (meanDifference(signatures[oldest], signatures[newest]) >= 2 * threshold) {
+            return 0.0;
+        }
+
+        int unchanged = 0;
+        for (int i = 0; i < pairs; i++) {
+            if (differences[(newest - i + history) % history] < threshold) {
+                unchanged++;
+            }
+        }
+        return (double) unchanged / (history - 1);
+    }
+
+    private static double meanDifference(byte[] a, byte[] b) {
+        long total = 0;
+        for (int i = 0; i < a.length; i++) {
+            total += Math.abs((a[i] & 0xFF) - (b[i] & 0xFF));
+        }
+        return (double) total / a.length;
+    }
+
+    //Block-averages the gray values getRGB would report into thumbnailSize x thumbnailSize cells
+    private void computeSignature(BufferedImage image, byte[] signature) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        Arrays.fill(cellSums, 0);
+        Arrays.fill(cellCounts, 0);
+
+        if (cellOfColumn.length != width) {
+            cellOfColumn = new int[width];
+            for (int x = 0; x < width; x++) {
+                cellOfColumn[x] = x * thumbnailSize / width;
+            }
+        }
+
+        Raster raster = image.getRaster();
+        if (EdgeDetector.isDirectlyReadable(raster)) {
+            int[] gray = EdgeDetector.grayTable(image.getColorModel());
+            PixelInterleavedSampleModel sampleModel = (PixelInterleavedSampleModel) raster.getSampleModel();
+            DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
+            byte[] data = buffer.getData();
+            int stride = sampleModel.getScanlineStride();
+            int origin = buffer.getOffset() + sampleModel.getBandOffsets()[0]
+                    - raster.getSampleModelTranslateY() * stride - raster.getSampleModelTranslateX();
+
+            for (int y = 0; y < height; y++) {
+                int rowCell = (y * thumbnailSize / height) * thumbnailSize;
+                int row = origin + y * stride;
+                for (int x = 0; x < width; x++) {
+                    int cell = rowCell + cellOfColumn[x];
+                    cellSums[cell] += gray[data[row + x] & 0xFF];
+                    cellCounts[cell]++;
+                }
+            }
+        } else {
+            for (int y = 0; y < height; y++) {
+                int rowCell = (y * thumbnailSize / height) * thumbnailSize;
+                for (int x = 0; x < width; x++) {
+                    int cell = rowCell + cellOfColumn[x];
+                    cellSums[cell] += (image.getRGB(x, y) >> 16) & 0xFF;
+                    cellCounts[cell]++;
+                }
+            }
+        }
+
+        for (int cell = 0; cell < signature.length; cell++) {
+            signature[cell] = (byte) (cellCounts[cell] == 0 ? 0 : cellSums[cell] / cellCounts[cell]);
+        }
+    }
+}
@@ -2,34 +2,89 @@ package org.swiftbotsample.app.web;
 
 import fi.iki.elonen.NanoHTTPD;
 import org.swiftbotsample.app.ButtonListener;
+import org.swiftbotsample.app.camera.CameraStream;
+import org.swiftbotsample.app.camera.FrameBroker;
+import org.swiftbotsample.app.commands.types.CaptureImageCommand;
+import org.swiftbotsample.app.hardware.BotHardware;
 import org.swiftbotsample.app.stores.GameResultStore;
 import org.swiftbotsample.app.stores.ImageStore;
+import org.swiftbotsample.app.stores.SensorRateStore;
+import org.swiftbotsample.cqrs.core.ButtonMask;
 import org.swiftbotsample.cqrs.core.Command;
 import org.swiftbotsample.cqrs.core.CommandRegistry;
+import org.swiftbotsample.cqrs.core.MenuManager;
+import org.swiftbotsample.cqrs.metrics.LatencyHistogram;
 import swiftbot.Button;
-import swiftbot.SwiftBotAPI;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.io.*;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class BotWebServer extends NanoHTTPD {
+    private static final String[] ROUTES = {
+            "/", "/image", "/captureImage", "/gameScore", "/simulateButtonPress", "/cancelCommand", "/metrics", "/stream"
+    };
 
-    private final SwiftBotAPI api;
+    private static final long CAPTURE_TIMEOUT = 15000; //ms, longer than the command's own timeout
+
+    private final BotHardware api;
     private final ButtonListener buttonListener;
     private final CommandRegistry commandRegistry;
+    private final MenuManager menuManager;
+    private final CameraStream cameraStream;
+    private final Map<String, LatencyHistogram> routeLatencies;
+    private final LatencyHistogram unknownRouteLatency;
 
-    public BotWebServer(int port, SwiftBotAPI api, ButtonListener buttonListener, CommandRegistry commandRegistry) {
+    public BotWebServer(int port, BotHardware api, ButtonListener buttonListener, CommandRegistry commandRegistry, MenuManager menuManager,
+                        FrameBroker frameBroker, CameraStream cameraStream) {
         super(port);
         this.api = api;
         this.buttonListener = buttonListener;
         this.commandRegistry = commandRegistry;
+        this.menuManager = menuManager;
+        this.cameraStream = cameraStream;
+
+        //One histogram per known route, looked up without allocating on each request
+        Map<String, LatencyHistogram> latencies = new HashMap<>();
+        for (String route : ROUTES) {
+            latencies.put(route, menuManager.getMetrics().histogram("swiftbot_http_request_duration_seconds",
+                    "HTTP request handling time per route.", "route", route));
+        }
+        routeLatencies = Map.copyOf(latencies);
+        unknownRouteLatency = menuManager.getMetrics().histogram("swiftbot_http_request_duration_seconds",
+                "HTTP request handling time per route.", "route", "other");
+
+        menuManager.getMetrics().counter("swiftbot_camera_frames_total", "Frames captured by the shared camera loop.",
+                frameBroker::getFramesCaptured);
+        menuManager.getMetrics().gauge("swiftbot_camera_subscribers", "Consumers subscribed to camera frames.",
+                frameBroker::getSubscriberCount);
+        menuManager.getMetrics().gauge("swiftbot_stream_viewers", "Open live stream connections.",
+                cameraStream::getViewerCount);
+        menuManager.getMetrics().counter("swiftbot_stream_frames_total", "Frames sent to the live stream.",
+                cameraStream::getFramesStreamed);
+        menuManager.getMetrics().counter("swiftbot_stream_frames_skipped_total", "Stream frames skipped by slow viewers.",
+                cameraStream::getFramesSkipped);
+        for (String sensor : new String[]{SensorRateStore.ULTRASONIC, SensorRateStore.CAMERA, SensorRateStore.STUCK_CHECK}) {
+            menuManager.getMetrics().gauge("swiftbot_sensor_sample_rate_hertz", "Effective sampling rate of the navigation sensor monitors.",
+                    "sensor", sensor, () -> SensorRateStore.getRate(sensor));
+        }
     }
 
     @Override
     public Response serve(IHTTPSession session) {
+        long start = System.nanoTime();
+        try {
+            return route(session);
+        } finally {
+            routeLatencies.getOrDefault(session.getUri(), unknownRouteLatency).recordSince(start);
+        }
+    }
+
+    private Response route(IHTTPSession session) {
         String uri = session.getUri();
         Map<String, String> params = session.getParms();
 
@@ -48,13 +103,19 @@ public class BotWebServer extends NanoHTTPD {
             case "/":
                 return serveHomePage();
             case "/image":
-                return serveImage();
+                return serveImage(session);
             case "/captureImage":
                 return handleCaptureImage();
             case "/gameScore":
                 return serveGameScore();
             case "/simulateButtonPress":
                 return handleSimulateButtonPress(params);
+            case "/cancelCommand":
+                return handleCancelCommand(params);
+            case "/metrics":
+                return serveMetrics();
+            case "/stream":
+                return serveStream();
             default:
                 return newFixedLengthResponse(Response.Status.NOT_FOUND, "text/plain", "404 Not Found");
         }
@@ -67,7 +128,7 @@ public class BotWebServer extends NanoHTTPD {
 
         //Image Viewer Section
         html.append("<h2>Image Viewer</h2>");
-        html.append("<p><a href=\"/captureImage\">Capture New Image</a></p>");
+        html.append("<p><a href=\"/captureImage\">Capture New Image</a> | <a href=\"/stream\">Live Stream</a></p>");
         html.append("<img id=\"capturedImage\" src=\"/image\" alt=\"Captured Image\" style=\"width:640px;height:480px;\"/>");
 
         //Mini-Game Score Section
@@ -85,6 +146,7 @@ public class BotWebServer extends NanoHTTPD {
             String commandName = commandClass.getSimpleName();
             html.append("<button onclick=\"executeCommand('" + commandName + "')\">" + commandName + "</button>");
         }
+        html.append("<button onclick=\"cancelCommand()\">Stop Current Command</button>");
         html.append("</div>");
 
         //JavaScript Section
@@ -97,12 +159,19 @@ public class BotWebServer extends NanoHTTPD {
         html.append("  xhr.setRequestHeader('Content-Type', 'application/x-www-form-urlencoded');");
         html.append("  xhr.onreadystatechange = function() {");
         html.append("    if (xhr.readyState == XMLHttpRequest.DONE) {");
-        html.append("      alert('Command ' + commandName + ' executed.');");
+        html.append("      alert('Command ' + commandName + ' dispatched.');");
         html.append("    }");
         html.append("  };");
         html.append("  xhr.send('command=' + commandName);");
         html.append("}");
 
+        //Function to cancel the running command
+        html.append("function cancelCommand() {");
+        html.append("  var xhr = new XMLHttpRequest();");
+        html.append("  xhr.open('POST', '/cancelCommand', true);");
+        html.append("  xhr.send();");
+        html.append("}");
+
         //Function to update game score
         html.append("function updateScore() {");
         html.append("  fetch('/gameScore').then(response => response.json()).then(data => {");
@@ -118,15 +187,23 @@ public class BotWebServer extends NanoHTTPD {
         return newFixedLengthResponse(Response.Status.OK, "text/html", html.toString());
     }
 
-    private Response serveImage() {
+    private Response serveImage(IHTTPSession session) {
         try {
-            BufferedImage image = ImageStore.getLastCapturedImage();
+            ImageStore.Snapshot snapshot = ImageStore.getSnapshot();
 
-            if (image != null) {
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                ImageIO.write(image, "JPEG", baos);
-                InputStream is = new ByteArrayInputStream(baos.toByteArray());
-                return newChunkedResponse(Response.Status.OK, "image/jpeg", is);
+            if (snapshot != null) {
+                String etag = snapshot.getETag();
+                Response response;
+                if (matchesETag(session.getHeaders().get("if-none-match"), etag)) {
+                    response = newFixedLengthResponse(Response.Status.NOT_MODIFIED, "image/jpeg", "");
+                } else {
+                    //Encoded once per capture and shared by every viewer
+                    byte[] jpeg = snapshot.getJpegBytes();
+                    response = newFixedLengthResponse(Response.Status.OK, "image/jpeg", new ByteArrayInputStream(jpeg), jpeg.length);
+                }
+                response.addHeader("ETag", etag);
+                response.addHeader("Cache-Control", "no-cache");
+                return response;
             } else {
                 String html = "<html><body>" +
                         "<h1>No Image Available</h1>" +
@@ -141,21 +218,64 @@ public class BotWebServer extends NanoHTTPD {
         }
     }
 
+    //If-None-Match may list several tags or be "*"
+    private static boolean matchesETag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private Response handleCaptureImage() {
+        ImageStore.Snapshot previous = ImageStore.getSnapshot();
         try {
-            //Simulate button press to capture image
-            String commandName = "CaptureImageCommand";
-            simulateCommandButtonPress(commandName);
-
-            return newFixedLengthResponse(Response.Status.OK, "text/html",
-                    "<html><body>" +
-                            "<h1>Image Captured</h1>" +
-                            "<p><a href=\"/\">Go Back</a></p>" +
-                            "</body></html>");
-        } catch (Exception e) {
+            //Wait for the capture, the page is only worth showing once the new image is in the store
+            menuManager.executeCommand(new CaptureImageCommand(api)).get(CAPTURE_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                //Capture is DROP_IF_BUSY, another command holds the bot
+                Response response = newFixedLengthResponse(Response.Status.SERVICE_UNAVAILABLE, "text/plain",
+                        "Busy: another command is running, try again when it has finished.");
+                response.addHeader("Retry-After", "5");
+                return response;
+            }
             e.printStackTrace();
             return newFixedLengthResponse(Response.Status.INTERNAL_ERROR, "text/plain", "Error capturing image.");
+        } catch (TimeoutException e) {
+            return newFixedLengthResponse(Response.Status.INTERNAL_ERROR, "text/plain", "Image capture timed out.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return newFixedLengthResponse(Response.Status.INTERNAL_ERROR, "text/plain", "Error capturing image.");
+        }
+
+        if (ImageStore.getSnapshot() == previous) {
+            //The handler reports camera failures by leaving the store unchanged
+            return newFixedLengthResponse(Response.Status.INTERNAL_ERROR, "text/plain", "Failed to capture image.");
         }
+        return newFixedLengthResponse(Response.Status.OK, "text/html",
+                "<html><body>" +
+                        "<h1>Image Captured</h1>" +
+                        "<p><a href=\"/\">Go Back</a></p>" +
+                        "</body></html>");
+    }
+
+    private Response serveStream() {
+        Response response = newChunkedResponse(Response.Status.OK, CameraStream.MIME_TYPE, cameraStream.openViewer());
+        response.addHeader("Cache-Control", "no-cache");
+        return response;
+    }
+
+    private Response serveMetrics() {
+        return newFixedLengthResponse(Response.Status.OK, "text/plain; version=0.0.4", menuManager.getMetrics().scrape());
     }
 
     private Response serveGameScore() {
@@ -173,42 +293,47 @@ public class BotWebServer extends NanoHTTPD {
 
         try {
             simulateCommandButtonPress(commandName);
-            return newFixedLengthResponse(Response.Status.OK, "text/plain", "Command executed successfully");
+            return newFixedLengthResponse(Response.Status.OK, "text/plain", "Command dispatched successfully");
         } catch (Exception e) {
             e.printStackTrace();
             return newFixedLengthResponse(Response.Status.INTERNAL_ERROR, "text/plain", "Error executing command");
         }
     }
 
-    private void simulateCommandButtonPress(String commandName) {
-        //Find the command class by name
-        Class<? extends Command> commandClass = null;
-        Set<Class<? extends Command>> commandClasses = commandRegistry.getCommands();
-        for (Class<? extends Command> cls : commandClasses) {
-            if (cls.getSimpleName().equals(commandName)) {
-                commandClass = cls;
-                break;
-            }
+    private Response handleCancelCommand(Map<String, String> params) {
+        String commandName = params.get("command");
+
+        //Without a command name, stop whatever is running
+        if (commandName == null) {
+            boolean cancelled = menuManager.cancelActiveCommand();
+            return newFixedLengthResponse(Response.Status.OK, "text/plain",
+                    cancelled ? "Command cancelled" : "No command running");
         }
 
-        if (commandClass != null) {
-            //Get the button combination for the command
-            Set<Button> buttonCombination = null;
-            for (Map.Entry<Set<Button>, Class<? extends Command>> entry : commandRegistry.getButtonCommandMap().entrySet()) {
-                if (entry.getValue().equals(commandClass)) {
-                    buttonCombination = entry.getKey();
-                    break;
-                }
+        for (Class<? extends Command> commandClass : commandRegistry.getCommands()) {
+            if (commandClass.getSimpleName().equals(commandName)) {
+                boolean cancelled = menuManager.cancel(commandClass);
+                return newFixedLengthResponse(Response.Status.OK, "text/plain",
+                        cancelled ? "Command cancelled" : "Command not running");
             }
+        }
+        return newFixedLengthResponse(Response.Status.BAD_REQUEST, "text/plain", "Invalid command name: " + commandName);
+    }
 
-            if (buttonCombination != null) {
-                //Simulate button presses
-                for (Button button : buttonCombination) {
+    private void simulateCommandButtonPress(String commandName) {
+        //Look up the button combination for the command by name
+        int buttonMask = commandRegistry.getButtonMask(commandName);
+
+        if (buttonMask > 0) {
+            //Simulate button presses
+            for (int i = 0; i < ButtonMask.BUTTON_COUNT; i++) {
+                Button button = ButtonMask.buttonAt(i);
+                if (ButtonMask.contains(buttonMask, button)) {
                     buttonListener.simulateButtonPress(button);
                 }
-            } else {
-                throw new IllegalArgumentException("No button combination found for command: " + commandName);
             }
+        } else if (buttonMask == 0) {
+            throw new IllegalArgumentException("No button combination found for command: " + commandName);
         } else {
             throw new IllegalArgumentException("Invalid command name: " + commandName);
         }
@@ -11,4 +11,6 @@ public @interface CommandAttribute {
     int ordinal();
     int priority();
     ButtonName[] buttons() default {};
-}
\ No newline at end of file
+    ConcurrencyPolicy concurrency() default ConcurrencyPolicy.QUEUE;
+    long timeoutMillis() default 0; //0 means no timeout
+}
@@ -0,0 +1,24 @@
+package org.swiftbotsample.cqrs.annotations;
+
+/**
+ * How a command is dispatched relative to the command that is currently running.
+ * Commands share the bot's hardware, so at most one command runs at a time.
+ */
+public enum ConcurrencyPolicy {
+    /**
+     * Waits in line behind the running and queued commands.
+     */
+    QUEUE,
+    /**
+     * Like QUEUE, but rejected while another instance of the same command is running or queued.
+     */
+    EXCLUSIVE,
+    /**
+     * Rejected unless the dispatcher is idle.
+     */
+    DROP_IF_BUSY,
+    /**
+     * Cancels the running command and runs ahead of anything queued.
+     */
+    PREEMPT
+}
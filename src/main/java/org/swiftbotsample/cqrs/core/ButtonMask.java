@@ -0,0 +1,79 @@
+package org.swiftbotsample.cqrs.core;
+
+import swiftbot.Button;
+
+import java.util.Set;
+
+/**
+ * Encodes the four SwiftBot buttons as bits, so a button combination is a number from 0 to 15
+ * and can index a plain array instead of hashing a {@code Set<Button>}.
+ */
+public final class ButtonMask {
+    public static final int A = 1;
+    public static final int B = 1 << 1;
+    public static final int X = 1 << 2;
+    public static final int Y = 1 << 3;
+
+    /**
+     * Number of distinct combinations, i.e. the size of a mask-indexed table.
+     */
+    public static final int COMBINATIONS = 1 << 4;
+
+    public static final int BUTTON_COUNT = 4;
+
+    private static final Button[] BUTTONS = {Button.A, Button.B, Button.X, Button.Y};
+
+    private ButtonMask() {
+    }
+
+    public static int of(Button button) {
+        switch (button) {
+            case A:
+                return A;
+            case B:
+                return B;
+            case X:
+                return X;
+            case Y:
+                return Y;
+            default:
+                throw new IllegalArgumentException("Unknown Button: " + button);
+        }
+    }
+
+    public static int of(Set<Button> buttons) {
+        int mask = 0;
+        for (Button button : buttons) {
+            mask |= of(button);
+        }
+        return mask;
+    }
+
+    /**
+     * Position of the button's bit, usable as an index into a four-element array.
+     */
+    public static int indexOf(Button button) {
+        return Integer.numberOfTrailingZeros(of(button));
+    }
+
+    public static Button buttonAt(int index) {
+        return BUTTONS[index];
+    }
+
+    public static boolean contains(int mask, Button button) {
+        return (mask & of(button)) != 0;
+    }
+
+    public static String toString(int mask) {
+        StringBuilder sb = new StringBuilder("[");
+        for (Button button : BUTTONS) {
+            if (contains(mask, button)) {
+                if (sb.length() > 1) {
+                    sb.append(", ");
+                }
+                sb.append(button);
+            }
+        }
+        return sb.append(']').toString();
+    }
+}
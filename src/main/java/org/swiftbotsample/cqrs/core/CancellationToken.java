@@ -0,0 +1,81 @@
+package org.swiftbotsample.cqrs.core;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Passed to every {@link CommandHandler} so a running command can be stopped cooperatively.
+ * Long-running handlers should poll it once per control tick, or sleep through {@link #sleep(long)} so they wake up on cancellation.
+ */
+public final class CancellationToken {
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private final CountDownLatch cancelledLatch = new CountDownLatch(1);
+    private final List<Runnable> callbacks = new CopyOnWriteArrayList<>();
+    private volatile String reason;
+
+    /**
+     * A fresh token, for running a handler outside the dispatcher.
+     */
+    public static CancellationToken create() {
+        return new CancellationToken();
+    }
+
+    public boolean isCancellationRequested() {
+        return cancelled.get();
+    }
+
+    public void throwIfCancellationRequested() {
+        if (cancelled.get()) {
+            throw new CancellationException(reason);
+        }
+    }
+
+    /**
+     * Sleeps for the given time, returning early if the token is cancelled.
+     * @return true if the token was cancelled
+     */
+    public boolean sleep(long millis) throws InterruptedException {
+        return cancelledLatch.await(millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Like {@link #sleep(long)}, for waits that need finer resolution than milliseconds.
+     * @return true if the token was cancelled
+     */
+    public boolean sleep(long duration, TimeUnit unit) throws InterruptedException {
+        return cancelledLatch.await(duration, unit);
+    }
+
+    /**
+     * Registers a callback run once on cancellation, or immediately if the token is already cancelled.
+     */
+    public void onCancel(Runnable callback) {
+        callbacks.add(callback);
+        if (cancelled.get() && callbacks.remove(callback)) {
+            callback.run();
+        }
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * Requests cancellation. Only the first call has an effect.
+     */
+    public void cancel(String reason) {
+        if (cancelled.compareAndSet(false, true)) {
+            this.reason = reason;
+            cancelledLatch.countDown();
+            for (Runnable callback : callbacks) {
+                if (callbacks.remove(callback)) {
+                    callback.run();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package org.swiftbotsample.cqrs.core;
+
+import org.swiftbotsample.cqrs.annotations.ConcurrencyPolicy;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs command handlers on a dedicated worker thread, one at a time, so callers such as
+ * the button callbacks and HTTP workers return immediately.
+ * Each submission is admitted according to its {@link ConcurrencyPolicy}, may carry a timeout,
+ * and gets its own {@link CancellationToken} that is cancelled on preemption, timeout or {@link #cancel(Class)}.
+ */
+public final class CommandDispatcher {
+    private static final Logger LOGGER = Logger.getLogger(CommandDispatcher.class.getName());
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(daemonThreadFactory("command-dispatcher"));
+    private final ScheduledExecutorService timeouts = Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("command-timeouts"));
+
+    //Guarded by lock
+    private final Object lock = new Object();
+    private final Deque<Submission<?>> queue = new ArrayDeque<>();
+    private Submission<?> active;
+
+    /**
+     * Submits the command for execution.
+     * The returned future completes when the handler returns, and fails with
+     * {@link RejectedExecutionException} if the policy refused the command,
+     * {@link CancellationException} if it was preempted or {@link TimeoutException} if it ran too long.
+     */
+    public <T extends Command> CompletableFuture<Void> dispatch(T command, CommandHandler<T> handler,
+                                                                ConcurrencyPolicy policy, long timeoutMillis) {
+        Submission<T> submission = new Submission<>(command, handler, timeoutMillis);
+
+        synchronized (lock) {
+            switch (policy) {
+                case DROP_IF_BUSY:
+                    if (active != null || !queue.isEmpty()) {
+                        return reject(submission, "dispatcher is busy");
+                    }
+                    queue.addLast(submission);
+                    break;
+
+                case EXCLUSIVE:
+                    if (isRunningOrQueued(command.getClass())) {
+                        return reject(submission, "another instance is already running or queued");
+                    }
+                    queue.addLast(submission);
+                    break;
+
+                case PREEMPT:
+                    if (active != null) {
+                        active.cancel(new CancellationException("Preempted by " + command.getClass().getSimpleName()));
+                    }
+                    queue.addFirst(submission);
+                    break;
+
+                case QUEUE:
+                default:
+                    queue.addLast(submission);
+                    break;
+            }
+
+            if (active == null) {
+                startNext();
+            }
+        }
+        return submission.future;
+    }
+
+    /**
+     * Number of commands waiting behind the active one.
+     */
+    public int getQueueDepth() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Cancels the running instance of the command and drops any queued ones.
+     * @return true if anything was cancelled
+     */
+    public boolean cancel(Class<? extends Command> commandClass) {
+        boolean cancelled = false;
+        synchronized (lock) {
+            for (Iterator<Submission<?>> it = queue.iterator(); it.hasNext(); ) {
+                Submission<?> submission = it.next();
+                if (submission.command.getClass() == commandClass) {
+                    it.remove();
+                    submission.cancel(new CancellationException(commandClass.getSimpleName() + " cancelled"));
+                    cancelled = true;
+                }
+            }
+            if (active != null && active.command.getClass() == commandClass) {
+                active.cancel(new CancellationException(commandClass.getSimpleName() + " cancelled"));
+                cancelled = true;
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * Cancels whichever command is currently running.
+     * @return true if a command was running
+     */
+    public boolean cancelActive() {
+        synchronized (lock) {
+            if (active == null) {
+                return false;
+            }
+            active.cancel(new CancellationException(active.command.getClass().getSimpleName() + " cancelled"));
+            return true;
+        }
+    }
+
+    public void shutdown() {
+        synchronized (lock) {
+            queue.forEach(submission -> submission.cancel(new CancellationException("Dispatcher shut down")));
+            queue.clear();
+            if (active != null) {
+                active.cancel(new CancellationException("Dispatcher shut down"));
+            }
+        }
+        worker.shutdownNow();
+        timeouts.shutdownNow();
+    }
+
+    private boolean isRunningOrQueued(Class<?> commandClass) {
+        if (active != null && active.command.getClass() == commandClass) {
+            return true;
+        }
+        for (Submission<?> submission : queue) {
+            if (submission.command.getClass() == commandClass) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private CompletableFuture<Void> reject(Submission<?> submission, String reason) {
+        LOGGER.log(Level.INFO, "Rejected {0}: {1}", new Object[]{submission.command.getClass().getSimpleName(), reason});
+        submission.future.completeExceptionally(new RejectedExecutionException(
+                submission.command.getClass().getSimpleName() + " rejected: " + reason));
+        return submission.future;
+    }
+
+    //Must be called while holding lock
+    private void startNext() {
+        Submission<?> next;
+        do {
+            next = queue.pollFirst();
+        } while (next != null && next.future.isDone()); //Skip submissions cancelled while queued
+
+        active = next;
+        if (next == null) {
+            return;
+        }
+
+        Submission<?> submission = next;
+        worker.execute(() -> run(submission));
+        if (submission.timeoutMillis > 0) {
+            submission.timeout = timeouts.schedule(
+                    () -> submission.cancel(new TimeoutException(submission.command.getClass().getSimpleName()
+                            + " timed out after " + submission.timeoutMillis + " ms")),
+                    submission.timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void run(Submission<?> submission) {
+        try {
+            //Cancelled before the worker got to it: skip the handler, but still start the next command below
+            if (submission.start()) {
+                submission.invoke();
+                submission.future.complete(null);
+            }
+        } catch (InterruptedException e) {
+            submission.future.completeExceptionally(new CancellationException("Interrupted"));
+        } catch (ExecutionException e) {
+            submission.future.completeExceptionally(e.getCause() != null ? e.getCause() : e);
+        } catch (Throwable t) {
+            submission.future.completeExceptionally(t);
+        } finally {
+            //Cancellation can no longer interrupt this thread, so clearing the flag cannot leak into the next command
+            submission.finish();
+            Thread.interrupted();
+            if (submission.timeout != null) {
+                submission.timeout.cancel(false);
+            }
+            synchronized (lock) {
+                if (active == submission) {
+                    startNext();
+                }
+            }
+        }
+    }
+
+    private static ThreadFactory daemonThreadFactory(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class Submission<T extends Command> {
+        final T command;
+        final CommandHandler<T> handler;
+        final long timeoutMillis;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        final CancellationToken cancellation = CancellationToken.create();
+        volatile ScheduledFuture<?> timeout;
+        //The worker thread while the handler runs, guarded by this
+        private Thread runner;
+
+        Submission(T command, CommandHandler<T> handler, long timeoutMillis) {
+            this.command = command;
+            this.handler = handler;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        void invoke() throws InterruptedException, ExecutionException {
+            handler.handle(command, cancellation);
+        }
+
+        //Binds the submission to the calling worker thread, false if it was cancelled before it started
+        synchronized boolean start() {
+            if (future.isDone()) {
+                return false;
+            }
+            runner = Thread.currentThread();
+            return true;
+        }
+
+        synchronized void finish() {
+            runner = null;
+        }
+
+        //Fails the future right away and signals the handler through its token.
+        //A running handler's worker is also interrupted to wake blocking calls; it moves on once the handler returns.
+        void cancel(Throwable reason) {
+            future.completeExceptionally(reason);
+            cancellation.cancel(reason.getMessage());
+            synchronized (this) {
+                if (runner != null) {
+                    runner.interrupt();
+                }
+            }
+        }
+    }
+}
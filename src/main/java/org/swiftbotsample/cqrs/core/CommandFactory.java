@@ -0,0 +1,13 @@
+package org.swiftbotsample.cqrs.core;
+
+import org.swiftbotsample.app.hardware.BotHardware;
+
+/**
+ * Creates command instances without reflection.
+ * Factories are resolved once by {@link CommandRegistry}, so a constructor mismatch fails at startup, not on a button press.
+ * @param <T> the type of command this factory creates
+ */
+@FunctionalInterface
+public interface CommandFactory<T extends Command> {
+    T create(BotHardware api);
+}
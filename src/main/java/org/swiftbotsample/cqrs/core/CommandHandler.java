@@ -4,8 +4,9 @@ import java.util.concurrent.ExecutionException;
 
 /**
  * Abstract handler for a specific command type.
+ * Handlers that run for more than a moment must watch the {@link CancellationToken} and return promptly once it is cancelled.
  * @param <T> the type of command this handler processes
  */
 public abstract class CommandHandler<T extends Command> {
-    public abstract void handle(T command) throws InterruptedException, ExecutionException;
-}
\ No newline at end of file
+    public abstract void handle(T command, CancellationToken cancellation) throws InterruptedException, ExecutionException;
+}
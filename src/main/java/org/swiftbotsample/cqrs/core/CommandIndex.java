@@ -0,0 +1,143 @@
+package org.swiftbotsample.cqrs.core;
+
+import org.reflections.Reflections;
+import org.swiftbotsample.cqrs.annotations.CommandAttribute;
+import org.swiftbotsample.cqrs.processing.CommandIndexProcessor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.ParameterizedType;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The commands and handlers found in a package, either read from the index generated by
+ * {@link CommandIndexProcessor} at build time or discovered with a runtime classpath scan.
+ */
+public final class CommandIndex {
+    private static final Logger LOGGER = Logger.getLogger(CommandIndex.class.getName());
+
+    private final Set<Class<? extends Command>> commands;
+    private final Map<Class<? extends CommandHandler<?>>, Class<? extends Command>> handlers;
+
+    private CommandIndex(Set<Class<? extends Command>> commands,
+                         Map<Class<? extends CommandHandler<?>>, Class<? extends Command>> handlers) {
+        this.commands = Collections.unmodifiableSet(commands);
+        this.handlers = Collections.unmodifiableMap(handlers);
+    }
+
+    /**
+     * Loads the build-time index, falling back to a classpath scan if no index is present.
+     */
+    public static CommandIndex load(String packageName) {
+        CommandIndex index = fromGeneratedIndex(packageName, CommandIndex.class.getClassLoader());
+        if (index != null) {
+            return index;
+        }
+
+        LOGGER.log(Level.WARNING, "No generated command index found, scanning package {0}", packageName);
+        return scan(packageName);
+    }
+
+    /**
+     * Reads every {@link CommandIndexProcessor#INDEX_RESOURCE} visible to the class loader.
+     * Returns null if there is none, so callers can decide how to fall back.
+     */
+    public static CommandIndex fromGeneratedIndex(String packageName, ClassLoader classLoader) {
+        Set<Class<? extends Command>> commands = new LinkedHashSet<>();
+        Map<Class<? extends CommandHandler<?>>, Class<? extends Command>> handlers = new LinkedHashMap<>();
+        boolean found = false;
+
+        try {
+            Enumeration<URL> resources = classLoader.getResources(CommandIndexProcessor.INDEX_RESOURCE);
+            while (resources.hasMoreElements()) {
+                found = true;
+                readIndex(resources.nextElement(), packageName, classLoader, commands, handlers);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to read generated command index", e);
+            return null;
+        }
+
+        return found ? new CommandIndex(commands, handlers) : null;
+    }
+
+    /**
+     * Discovers commands and handlers with a single runtime classpath scan.
+     */
+    @SuppressWarnings("unchecked")
+    public static CommandIndex scan(String packageName) {
+        Reflections reflections = new Reflections(packageName);
+
+        Set<Class<? extends Command>> commands = new LinkedHashSet<>();
+        for (Class<?> cls : reflections.getTypesAnnotatedWith(CommandAttribute.class)) {
+            if (Command.class.isAssignableFrom(cls)) {
+                commands.add((Class<? extends Command>) cls);
+            }
+        }
+
+        Map<Class<? extends CommandHandler<?>>, Class<? extends Command>> handlers = new LinkedHashMap<>();
+        for (Class<?> handlerClass : reflections.getSubTypesOf(CommandHandler.class)) {
+            Class<? extends Command> commandClass = getCommandType(handlerClass);
+            if (commandClass != null) {
+                handlers.put((Class<? extends CommandHandler<?>>) handlerClass, commandClass);
+            }
+        }
+
+        return new CommandIndex(commands, handlers);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void readIndex(URL url, String packageName, ClassLoader classLoader,
+                                  Set<Class<? extends Command>> commands,
+                                  Map<Class<? extends CommandHandler<?>>, Class<? extends Command>> handlers) throws IOException {
+        String prefix = packageName + ".";
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] parts = line.split("\\s+");
+                try {
+                    if (parts[0].equals("command") && parts.length == 2 && parts[1].startsWith(prefix)) {
+                        commands.add((Class<? extends Command>) Class.forName(parts[1], false, classLoader));
+                    } else if (parts[0].equals("handler") && parts.length == 3 && parts[1].startsWith(prefix)) {
+                        handlers.put((Class<? extends CommandHandler<?>>) Class.forName(parts[1], false, classLoader),
+                                (Class<? extends Command>) Class.forName(parts[2], false, classLoader));
+                    }
+                } catch (ClassNotFoundException e) {
+                    LOGGER.log(Level.WARNING, "Stale command index entry in " + url + ": " + line, e);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<? extends Command> getCommandType(Class<?> handlerClass) {
+        try {
+            return (Class<? extends Command>) ((ParameterizedType)
+                    handlerClass.getGenericSuperclass()).getActualTypeArguments()[0];
+        } catch (ClassCastException | ArrayIndexOutOfBoundsException e) {
+            LOGGER.log(Level.WARNING, "Failed to determine command type for handler: " + handlerClass.getName(), e);
+            return null;
+        }
+    }
+
+    public Set<Class<? extends Command>> getCommands() {
+        return commands;
+    }
+
+    /**
+     * Handler classes mapped to the command type they handle.
+     */
+    public Map<Class<? extends CommandHandler<?>>, Class<? extends Command>> getHandlers() {
+        return handlers;
+    }
+}
@@ -1,66 +1,101 @@
 package org.swiftbotsample.cqrs.core;
 
 import org.swiftbotsample.app.ButtonName;
+import org.swiftbotsample.app.hardware.BotHardware;
 import org.swiftbotsample.cqrs.annotations.CommandAttribute;
-import org.reflections.Reflections;
 import swiftbot.Button;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
-public class CommandRegistry {
-    private final Map<Class<? extends Command>, CommandHandler<? extends Command>> commandHandlerMap = new HashMap<>();
-    private final Map<Set<Button>, Class<? extends Command>> buttonCommandMap = new HashMap<>();
+/**
+ * Immutable snapshot of the registered commands, their handlers and button combinations.
+ * Build one per application and share it; all lookups are lock-free and safe from any thread.
+ */
+public final class CommandRegistry {
+    private final Map<Class<? extends Command>, CommandHandler<? extends Command>> commandHandlerMap;
+    private final Map<Class<? extends Command>, CommandFactory<? extends Command>> commandFactoryMap;
+    //Indexed by ButtonMask, so resolving a pressed combination is a single array read
+    private final Class<? extends Command>[] commandsByMask;
+    private final CommandHandler<? extends Command>[] handlersByMask;
+    private final CommandFactory<? extends Command>[] factoriesByMask;
+    private final Map<String, Integer> buttonMaskByCommandName;
     private static final Logger LOGGER = Logger.getLogger(CommandRegistry.class.getName());
     private final Set<Class<? extends Command>> commands;
 
     public CommandRegistry(String packageName) {
-        commands = loadCommands(packageName);
-        loadCommandsAndHandlers(packageName);
-    }
-
-    private Set<Class<? extends Command>> loadCommands(String packageName) {
-        Reflections reflections = new Reflections(packageName);
-        return reflections.getTypesAnnotatedWith(CommandAttribute.class)
-                .stream()
-                .filter(Command.class::isAssignableFrom)
-                .map(cls -> (Class<? extends Command>) cls)
-                .collect(Collectors.toSet());
+        this(CommandIndex.load(packageName));
     }
 
     @SuppressWarnings("unchecked")
-    private void loadCommandsAndHandlers(String packageName) {
-        Reflections reflections = new Reflections(packageName);
+    public CommandRegistry(CommandIndex index) {
+        commands = index.getCommands();
+
+        Map<Class<? extends Command>, CommandHandler<? extends Command>> handlers = new HashMap<>();
+        Class<? extends Command>[] buttonCommands = new Class[ButtonMask.COMBINATIONS];
+        loadHandlers(index, handlers, buttonCommands);
+
+        //Resolve every constructor now, so a mismatch fails at startup instead of on a button press
+        Map<Class<? extends Command>, CommandFactory<? extends Command>> factories = new HashMap<>();
+        Map<String, Integer> commandMasks = new HashMap<>();
+        for (Class<? extends Command> commandClass : commands) {
+            factories.put(commandClass, createFactory(commandClass));
+            commandMasks.put(commandClass.getSimpleName(), 0);
+        }
+
+        CommandHandler<? extends Command>[] buttonHandlers = new CommandHandler[ButtonMask.COMBINATIONS];
+        CommandFactory<? extends Command>[] buttonFactories = new CommandFactory[ButtonMask.COMBINATIONS];
+        for (int mask = 0; mask < ButtonMask.COMBINATIONS; mask++) {
+            if (buttonCommands[mask] != null) {
+                buttonHandlers[mask] = handlers.get(buttonCommands[mask]);
+                buttonFactories[mask] = factories.get(buttonCommands[mask]);
+                commandMasks.put(buttonCommands[mask].getSimpleName(), mask);
+            }
+        }
 
-        //Scan and register commands and their handlers
-        Set<Class<?>> commandClasses = reflections.getTypesAnnotatedWith(CommandAttribute.class);
-        Set<Class<? extends CommandHandler<?>>> handlerClasses = (Set<Class<? extends CommandHandler<?>>>) (Set<?>) reflections.getSubTypesOf(CommandHandler.class);
+        //Freeze everything, the registry is never modified after construction
+        commandHandlerMap = Map.copyOf(handlers);
+        commandFactoryMap = Map.copyOf(factories);
+        commandsByMask = buttonCommands;
+        handlersByMask = buttonHandlers;
+        factoriesByMask = buttonFactories;
+        buttonMaskByCommandName = Map.copyOf(commandMasks);
+    }
 
-        for (Class<? extends CommandHandler<?>> handlerClass : handlerClasses) {
-            try {
-                CommandHandler<?> handlerInstance = handlerClass.getDeclaredConstructor().newInstance();
-                Class<? extends Command> commandClass = getCommandType(handlerClass);
+    private void loadHandlers(CommandIndex index,
+                              Map<Class<? extends Command>, CommandHandler<? extends Command>> handlers,
+                              Class<? extends Command>[] buttonCommands) {
+        for (Map.Entry<Class<? extends CommandHandler<?>>, Class<? extends Command>> entry : index.getHandlers().entrySet()) {
+            Class<? extends CommandHandler<?>> handlerClass = entry.getKey();
+            Class<? extends Command> commandClass = entry.getValue();
 
-                if (commandClass != null && commandClasses.contains(commandClass)) {
-                    commandHandlerMap.put(commandClass, handlerInstance);
+            try {
+                if (commands.contains(commandClass)) {
+                    CommandHandler<?> handlerInstance = handlerClass.getDeclaredConstructor().newInstance();
+                    handlers.put(commandClass, handlerInstance);
                     LOGGER.log(Level.INFO, "Registered handler for command: {0}", commandClass.getSimpleName());
 
                     //Handle button mappings
                     CommandAttribute commandAttr = commandClass.getAnnotation(CommandAttribute.class);
                     if (commandAttr != null && commandAttr.buttons().length > 0) {
-                        Set<Button> buttonSet = mapButtonNamesToButtons(commandAttr.buttons());
+                        int mask = ButtonMask.of(mapButtonNamesToButtons(commandAttr.buttons()));
 
                         //Check for conflicts
-                        if (buttonCommandMap.containsKey(buttonSet)) {
+                        if (buttonCommands[mask] != null) {
                             throw new IllegalArgumentException(
-                                    "Button combination " + buttonSet + " is already registered to command " +
-                                            buttonCommandMap.get(buttonSet).getSimpleName());
+                                    "Button combination " + ButtonMask.toString(mask) + " is already registered to command " +
+                                            buttonCommands[mask].getSimpleName());
                         } else {
-                            buttonCommandMap.put(buttonSet, commandClass);
+                            buttonCommands[mask] = commandClass;
                             LOGGER.log(Level.INFO, "Registered button combination {0} for command {1}",
-                                    new Object[]{buttonSet, commandClass.getSimpleName()});
+                                    new Object[]{ButtonMask.toString(mask), commandClass.getSimpleName()});
                         }
                     }
                 }
@@ -71,10 +106,49 @@ public class CommandRegistry {
         }
     }
 
+    /**
+     * Binds the command's {@code (BotHardware)} constructor to a {@link CommandFactory}.
+     * Uses LambdaMetafactory so the call is as cheap as {@code new}, falling back to a plain MethodHandle.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends Command> CommandFactory<T> createFactory(Class<T> commandClass) {
+        MethodHandle constructor;
+        try {
+            constructor = MethodHandles.publicLookup()
+                    .findConstructor(commandClass, MethodType.methodType(void.class, BotHardware.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("Command " + commandClass.getName()
+                    + " must declare a public constructor taking BotHardware", e);
+        }
+
+        try {
+            CallSite site = LambdaMetafactory.metafactory(
+                    MethodHandles.lookup(),
+                    "create",
+                    MethodType.methodType(CommandFactory.class),
+                    MethodType.methodType(Command.class, BotHardware.class),
+                    constructor,
+                    MethodType.methodType(commandClass, BotHardware.class));
+            return (CommandFactory<T>) site.getTarget().invoke();
+        } catch (Throwable e) {
+            LOGGER.log(Level.FINE, "LambdaMetafactory unavailable for " + commandClass.getName() + ", using MethodHandle", e);
+            MethodHandle factory = constructor.asType(MethodType.methodType(Command.class, BotHardware.class));
+            return api -> {
+                try {
+                    return (T) (Command) factory.invokeExact(api);
+                } catch (RuntimeException | Error e2) {
+                    throw e2;
+                } catch (Throwable e2) {
+                    throw new IllegalStateException("Failed to create command " + commandClass.getName(), e2);
+                }
+            };
+        }
+    }
+
     private Set<Button> mapButtonNamesToButtons(ButtonName[] buttonNames) {
         return Arrays.stream(buttonNames)
                 .map(this::getButtonFromName)
-                .collect(Collectors.toSet());
+                .collect(Collectors.toUnmodifiableSet());
     }
 
     private Button getButtonFromName(ButtonName buttonName) {
@@ -92,19 +166,22 @@ public class CommandRegistry {
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private Class<? extends Command> getCommandType(Class<? extends CommandHandler<?>> handlerClass) {
-        try {
-            return (Class<? extends Command>) ((java.lang.reflect.ParameterizedType)
-                    handlerClass.getGenericSuperclass()).getActualTypeArguments()[0];
-        } catch (ClassCastException | ArrayIndexOutOfBoundsException e) {
-            LOGGER.log(Level.WARNING, "Failed to determine command type for handler: " + handlerClass.getName(), e);
-            return null;
-        }
+    public Class<? extends Command> getCommandForButtons(Set<Button> buttons) {
+        return getCommandForMask(ButtonMask.of(buttons));
     }
 
-    public Class<? extends Command> getCommandForButtons(Set<Button> buttons) {
-        return buttonCommandMap.get(buttons);
+    /**
+     * Returns the command bound to the {@link ButtonMask} combination, or null if there is none.
+     */
+    public Class<? extends Command> getCommandForMask(int buttonMask) {
+        return commandsByMask[buttonMask];
+    }
+
+    /**
+     * Returns the handler of the command bound to the {@link ButtonMask} combination, or null if there is none.
+     */
+    public CommandHandler<? extends Command> getHandlerForMask(int buttonMask) {
+        return handlersByMask[buttonMask];
     }
 
     @SuppressWarnings("unchecked")
@@ -112,8 +189,24 @@ public class CommandRegistry {
         return (CommandHandler<T>) commandHandlerMap.get(commandClass);
     }
 
-    public Map<Set<Button>, Class<? extends Command>> getButtonCommandMap() {
-        return buttonCommandMap;
+    /**
+     * Returns the precompiled factory of the command bound to the {@link ButtonMask} combination, or null if there is none.
+     */
+    public CommandFactory<? extends Command> getFactoryForMask(int buttonMask) {
+        return factoriesByMask[buttonMask];
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Command> CommandFactory<T> getFactory(Class<T> commandClass) {
+        return (CommandFactory<T>) commandFactoryMap.get(commandClass);
+    }
+
+    /**
+     * Returns the {@link ButtonMask} bound to the command with this simple name,
+     * 0 if the command has no button combination, or -1 if there is no such command.
+     */
+    public int getButtonMask(String commandName) {
+        return buttonMaskByCommandName.getOrDefault(commandName, -1);
     }
 
     public Set<Class<? extends Command>> getCommands() {
@@ -1,11 +1,21 @@
 package org.swiftbotsample.cqrs.core;
 
 import org.swiftbotsample.cqrs.annotations.CommandAttribute;
+import org.swiftbotsample.cqrs.annotations.ConcurrencyPolicy;
+import org.swiftbotsample.cqrs.metrics.LatencyHistogram;
+import org.swiftbotsample.cqrs.metrics.MetricsRegistry;
+import org.swiftbotsample.cqrs.notifications.CommandCompletedEvent;
+import org.swiftbotsample.cqrs.notifications.CommandFailedEvent;
+import org.swiftbotsample.cqrs.notifications.CommandStartedEvent;
 import org.swiftbotsample.cqrs.notifications.Notification;
 import org.swiftbotsample.cqrs.notifications.NotificationSystem;
+import org.swiftbotsample.cqrs.notifications.Subscription;
 
-import java.util.Optional;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
@@ -13,24 +23,87 @@ import java.util.stream.Collectors;
 public class MenuManager {
     private final CommandRegistry commandRegistry;
     private final NotificationSystem notificationSystem = new NotificationSystem();
+    private final CommandDispatcher dispatcher = new CommandDispatcher();
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final Map<Class<? extends Command>, LatencyHistogram> commandDurations;
 
-    public MenuManager(String commandPackage) {
-        this.commandRegistry = new CommandRegistry(commandPackage);
+    public MenuManager(CommandRegistry commandRegistry) {
+        this.commandRegistry = commandRegistry;
+
+        //Register every instrument up front, so recording is a plain lookup in an immutable map
+        Map<Class<? extends Command>, LatencyHistogram> durations = new HashMap<>();
+        for (Class<? extends Command> commandClass : commandRegistry.getCommands()) {
+            durations.put(commandClass, metrics.histogram("swiftbot_command_duration_seconds",
+                    "Command handler execution time.", "command", commandClass.getSimpleName()));
+        }
+        commandDurations = Map.copyOf(durations);
+
+        metrics.gauge("swiftbot_dispatcher_queue_depth", "Commands waiting behind the running one.",
+                dispatcher::getQueueDepth);
+        metrics.gauge("swiftbot_notification_queue_depth", "Notifications queued across all subscribers.",
+                () -> notificationSystem.getSubscriptions().stream().mapToLong(Subscription::getQueueDepth).sum());
+        metrics.counter("swiftbot_notification_dropped_total", "Notifications dropped by full subscriber queues.",
+                () -> notificationSystem.getSubscriptions().stream().mapToLong(Subscription::getDroppedCount).sum());
     }
 
-    public <T extends Command> void executeCommand(T command) {
+    /**
+     * Dispatches the command to its handler without blocking the caller.
+     * The command's {@link CommandAttribute} decides its concurrency policy and timeout.
+     * @return a future that completes when the handler finishes, or fails if the command was rejected, preempted or timed out
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Command> CompletableFuture<Void> executeCommand(T command) {
         Class<T> commandClass = (Class<T>) command.getClass();
-        Optional<CommandHandler<T>> handlerOpt = Optional.ofNullable(commandRegistry.getHandler(commandClass));
-
-        handlerOpt.ifPresentOrElse(handler -> {
-            notificationSystem.notify(new Notification("Executing command: " + command.getClass().getSimpleName()));
-            try {
-                handler.handle(command);
-            } catch (InterruptedException | ExecutionException e) {
-                throw new RuntimeException(e);
+        CommandHandler<T> handler = commandRegistry.getHandler(commandClass);
+
+        if (handler == null) {
+            if (notificationSystem.hasSubscribers()) {
+                notificationSystem.notify(new Notification("No handler found for command: " + commandClass.getSimpleName()));
             }
-            notificationSystem.notify(new Notification("Command executed successfully: " + command.getClass().getSimpleName()));
-        }, () -> notificationSystem.notify(new Notification("No handler found for command: " + command.getClass().getSimpleName())));
+            return CompletableFuture.failedFuture(new IllegalStateException("No handler found for command: " + commandClass.getName()));
+        }
+
+        CommandAttribute attribute = commandClass.getAnnotation(CommandAttribute.class);
+        ConcurrencyPolicy policy = attribute != null ? attribute.concurrency() : ConcurrencyPolicy.QUEUE;
+        long timeoutMillis = attribute != null ? attribute.timeoutMillis() : 0;
+
+        LatencyHistogram duration = commandDurations.get(commandClass);
+        CommandHandler<T> notifyingHandler = new CommandHandler<>() {
+            @Override
+            public void handle(T cmd, CancellationToken cancellation) throws InterruptedException, ExecutionException {
+                //Events are only built when someone is listening
+                long start = System.nanoTime();
+                if (notificationSystem.hasSubscribers()) {
+                    notificationSystem.notify(new CommandStartedEvent(commandClass, start));
+                }
+                try {
+                    handler.handle(cmd, cancellation);
+                } catch (Throwable t) {
+                    if (duration != null) {
+                        duration.recordSince(start);
+                    }
+                    if (notificationSystem.hasSubscribers()) {
+                        long end = System.nanoTime();
+                        notificationSystem.notify(new CommandFailedEvent(commandClass, end, end - start, t));
+                    }
+                    throw t;
+                }
+                if (duration != null) {
+                    duration.recordSince(start);
+                }
+                if (notificationSystem.hasSubscribers()) {
+                    long end = System.nanoTime();
+                    if (cancellation.isCancellationRequested()) {
+                        //Handlers return normally once cancelled, but the dispatcher has already failed the future
+                        notificationSystem.notify(new CommandFailedEvent(commandClass, end, end - start,
+                                new CancellationException(cancellation.getReason())));
+                    } else {
+                        notificationSystem.notify(new CommandCompletedEvent(commandClass, end, end - start));
+                    }
+                }
+            }
+        };
+        return dispatcher.dispatch(command, notifyingHandler, policy, timeoutMillis);
     }
 
     /**
@@ -59,4 +132,27 @@ public class MenuManager {
     public NotificationSystem getNotificationSystem() {
         return notificationSystem;
     }
+
+    /**
+     * Cancels the running instance of the command, if any, and drops queued ones.
+     * The handler is signalled through its {@link CancellationToken} and stops on its next control tick.
+     */
+    public boolean cancel(Class<? extends Command> commandClass) {
+        return dispatcher.cancel(commandClass);
+    }
+
+    /**
+     * Cancels whichever command is currently running.
+     */
+    public boolean cancelActiveCommand() {
+        return dispatcher.cancelActive();
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    public CommandDispatcher getDispatcher() {
+        return dispatcher;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+package org.swiftbotsample.cqrs.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-bucket latency histogram. {@link #record(long)} is lock-free and allocation-free,
+ * so it can sit on the button, HTTP and dispatcher hot paths.
+ */
+public final class LatencyHistogram {
+    //Upper bounds in nanoseconds, from 100 us to 60 s; the last bucket is +Inf
+    static final long[] BUCKET_BOUNDS = {
+            TimeUnit.MICROSECONDS.toNanos(100),
+            TimeUnit.MICROSECONDS.toNanos(250),
+            TimeUnit.MICROSECONDS.toNanos(500),
+            TimeUnit.MILLISECONDS.toNanos(1),
+            TimeUnit.MILLISECONDS.toNanos(2),
+            TimeUnit.MILLISECONDS.toNanos(5),
+            TimeUnit.MILLISECONDS.toNanos(10),
+            TimeUnit.MILLISECONDS.toNanos(25),
+            TimeUnit.MILLISECONDS.toNanos(50),
+            TimeUnit.MILLISECONDS.toNanos(100),
+            TimeUnit.MILLISECONDS.toNanos(250),
+            TimeUnit.MILLISECONDS.toNanos(500),
+            TimeUnit.SECONDS.toNanos(1),
+            TimeUnit.SECONDS.toNanos(5),
+            TimeUnit.SECONDS.toNanos(15),
+            TimeUnit.SECONDS.toNanos(60)
+    };
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+    private final AtomicLong sumNanos = new AtomicLong();
+
+    LatencyHistogram() {
+    }
+
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS.length && nanos > BUCKET_BOUNDS[bucket]) {
+            bucket++;
+        }
+        buckets.incrementAndGet(bucket);
+        sumNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos}, as read from {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    long getBucketCount(int bucket) {
+        return buckets.get(bucket);
+    }
+
+    long getSumNanos() {
+        return sumNanos.get();
+    }
+}
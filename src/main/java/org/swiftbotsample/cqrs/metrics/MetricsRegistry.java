@@ -0,0 +1,143 @@
+package org.swiftbotsample.cqrs.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Holds the application's metrics and renders them in the Prometheus text exposition format.
+ * Metrics are registered once at startup and the returned instruments are kept by the code that records into them,
+ * so recording never touches this registry.
+ */
+public final class MetricsRegistry {
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    /**
+     * Registers an unlabelled histogram. Durations are exposed in seconds.
+     */
+    public LatencyHistogram histogram(String name, String help) {
+        return histogram(name, help, null, null);
+    }
+
+    /**
+     * Registers one labelled series of a histogram family, or returns the existing one.
+     */
+    public synchronized LatencyHistogram histogram(String name, String help, String labelName, String labelValue) {
+        Family family = family(name, help, "histogram");
+        String labels = labelName == null ? "" : labelName + "=\"" + escape(labelValue) + "\"";
+        for (Series series : family.series) {
+            if (series.labels.equals(labels)) {
+                return series.histogram;
+            }
+        }
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        family.series.add(new Series(labels, histogram, null, null));
+        return histogram;
+    }
+
+    public synchronized void gauge(String name, String help, LongSupplier value) {
+        family(name, help, "gauge").series.add(new Series("", null, value, null));
+    }
+
+    /**
+     * Registers one labelled series of a gauge family with a fractional value.
+     */
+    public synchronized void gauge(String name, String help, String labelName, String labelValue, DoubleSupplier value) {
+        String labels = labelName + "=\"" + escape(labelValue) + "\"";
+        family(name, help, "gauge").series.add(new Series(labels, null, null, value));
+    }
+
+    /**
+     * Registers a counter read from an existing monotonically increasing value.
+     */
+    public synchronized void counter(String name, String help, LongSupplier value) {
+        family(name, help, "counter").series.add(new Series("", null, value, null));
+    }
+
+    public synchronized String scrape() {
+        StringBuilder sb = new StringBuilder(4096);
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            sb.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            sb.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+
+            for (Series series : family.series) {
+                if (series.histogram != null) {
+                    writeHistogram(sb, name, series);
+                } else {
+                    sb.append(name);
+                    if (!series.labels.isEmpty()) {
+                        sb.append('{').append(series.labels).append('}');
+                    }
+                    sb.append(' ');
+                    if (series.doubleValue != null) {
+                        sb.append(series.doubleValue.getAsDouble());
+                    } else {
+                        sb.append(series.value.getAsLong());
+                    }
+                    sb.append('\n');
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private void writeHistogram(StringBuilder sb, String name, Series series) {
+        String separator = series.labels.isEmpty() ? "" : ",";
+        long cumulative = 0;
+        for (int i = 0; i <= LatencyHistogram.BUCKET_BOUNDS.length; i++) {
+            cumulative += series.histogram.getBucketCount(i);
+            String bound = i < LatencyHistogram.BUCKET_BOUNDS.length
+                    ? Double.toString(LatencyHistogram.BUCKET_BOUNDS[i] / 1e9)
+                    : "+Inf";
+            sb.append(name).append("_bucket{").append(series.labels).append(separator)
+                    .append("le=\"").append(bound).append("\"} ").append(cumulative).append('\n');
+        }
+
+        String labels = series.labels.isEmpty() ? "" : "{" + series.labels + "}";
+        sb.append(name).append("_sum").append(labels).append(' ').append(series.histogram.getSumNanos() / 1e9).append('\n');
+        sb.append(name).append("_count").append(labels).append(' ').append(cumulative).append('\n');
+    }
+
+    private Family family(String name, String help, String type) {
+        Family family = families.computeIfAbsent(name, n -> new Family(help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static final class Family {
+        final String help;
+        final String type;
+        final List<Series> series = new ArrayList<>();
+
+        Family(String help, String type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    private static final class Series {
+        final String labels;
+        final LatencyHistogram histogram;
+        final LongSupplier value;
+        final DoubleSupplier doubleValue;
+
+        Series(String labels, LatencyHistogram histogram, LongSupplier value, DoubleSupplier doubleValue) {
+            this.labels = labels;
+            this.histogram = histogram;
+            this.value = value;
+            this.doubleValue = doubleValue;
+        }
+    }
+}
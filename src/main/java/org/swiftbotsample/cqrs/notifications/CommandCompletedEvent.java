@@ -0,0 +1,21 @@
+package org.swiftbotsample.cqrs.notifications;
+
+import org.swiftbotsample.cqrs.core.Command;
+
+public class CommandCompletedEvent extends CommandEvent {
+    private final long durationNanos;
+
+    public CommandCompletedEvent(Class<? extends Command> commandClass, long timestampNanos, long durationNanos) {
+        super(commandClass, timestampNanos);
+        this.durationNanos = durationNanos;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    @Override
+    public String getMessage() {
+        return "Command executed successfully: " + getCommandClass().getSimpleName();
+    }
+}
@@ -0,0 +1,25 @@
+package org.swiftbotsample.cqrs.notifications;
+
+import org.swiftbotsample.cqrs.core.Command;
+
+/**
+ * Base of the typed command lifecycle notifications.
+ * Timestamps come from {@link System#nanoTime()} and are only meaningful relative to each other.
+ */
+public abstract class CommandEvent extends Notification {
+    private final Class<? extends Command> commandClass;
+    private final long timestampNanos;
+
+    protected CommandEvent(Class<? extends Command> commandClass, long timestampNanos) {
+        this.commandClass = commandClass;
+        this.timestampNanos = timestampNanos;
+    }
+
+    public Class<? extends Command> getCommandClass() {
+        return commandClass;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+}
@@ -0,0 +1,30 @@
+package org.swiftbotsample.cqrs.notifications;
+
+import org.swiftbotsample.cqrs.core.Command;
+
+/**
+ * Published when a handler throws, including when it stops because it was cancelled.
+ */
+public class CommandFailedEvent extends CommandEvent {
+    private final long durationNanos;
+    private final Throwable error;
+
+    public CommandFailedEvent(Class<? extends Command> commandClass, long timestampNanos, long durationNanos, Throwable error) {
+        super(commandClass, timestampNanos);
+        this.durationNanos = durationNanos;
+        this.error = error;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    @Override
+    public String getMessage() {
+        return "Command failed: " + getCommandClass().getSimpleName() + " (" + error + ")";
+    }
+}
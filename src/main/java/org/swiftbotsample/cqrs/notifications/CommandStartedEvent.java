@@ -0,0 +1,14 @@
+package org.swiftbotsample.cqrs.notifications;
+
+import org.swiftbotsample.cqrs.core.Command;
+
+public class CommandStartedEvent extends CommandEvent {
+    public CommandStartedEvent(Class<? extends Command> commandClass, long timestampNanos) {
+        super(commandClass, timestampNanos);
+    }
+
+    @Override
+    public String getMessage() {
+        return "Executing command: " + getCommandClass().getSimpleName();
+    }
+}
@@ -7,7 +7,12 @@ public class Notification {
         this.message = message;
     }
 
+    //For typed notifications that build their message on demand
+    protected Notification() {
+        this.message = null;
+    }
+
     public String getMessage() {
         return message;
     }
-}
\ No newline at end of file
+}
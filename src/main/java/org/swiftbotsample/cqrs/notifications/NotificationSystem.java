@@ -1,26 +1,66 @@
 package org.swiftbotsample.cqrs.notifications;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 
+/**
+ * Publish/subscribe bus. Subscribers are held in a copy-on-write list, so subscribing during a dispatch is safe,
+ * and each gets its own bounded queue drained on a delivery thread, so {@link #notify} never waits for a subscriber.
+ */
 public class NotificationSystem {
-    private final List<Consumer<Notification>> subscribers = new ArrayList<>();
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ExecutorService deliveryExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "notification-delivery");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     //Subscribe a listener
-    public void subscribe(Consumer<Notification> listener) {
-        subscribers.add(listener);
+    public Subscription subscribe(Consumer<Notification> listener) {
+        return subscribe(listener, DEFAULT_QUEUE_CAPACITY, OverflowPolicy.DROP_OLDEST);
+    }
+
+    //Subscribe a listener with its own queue size and overflow policy
+    public Subscription subscribe(Consumer<Notification> listener, int queueCapacity, OverflowPolicy overflowPolicy) {
+        Subscription subscription = new Subscription(listener, queueCapacity, overflowPolicy, deliveryExecutor);
+        subscriptions.add(subscription);
+        return subscription;
     }
 
     //Unsubscribe a listener
     public void unsubscribe(Consumer<Notification> listener) {
-        subscribers.remove(listener);
+        for (Subscription subscription : subscriptions) {
+            if (subscription.getListener() == listener && subscriptions.remove(subscription)) {
+                subscription.cancel();
+            }
+        }
     }
 
     //Publish a notification
     public void notify(Notification notification) {
-        for (Consumer<Notification> subscriber : subscribers) {
-            subscriber.accept(notification);
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(notification);
+        }
+    }
+
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    public List<Subscription> getSubscriptions() {
+        return List.copyOf(subscriptions);
+    }
+
+    public void shutdown() {
+        for (Subscription subscription : subscriptions) {
+            subscription.cancel();
         }
+        subscriptions.clear();
+        deliveryExecutor.shutdownNow();
     }
-}
\ No newline at end of file
+}
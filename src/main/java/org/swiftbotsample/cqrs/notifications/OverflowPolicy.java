@@ -0,0 +1,19 @@
+package org.swiftbotsample.cqrs.notifications;
+
+/**
+ * What a subscription does with a new notification when its queue is full.
+ */
+public enum OverflowPolicy {
+    /**
+     * Keep the backlog and drop the new notification.
+     */
+    DROP_NEWEST,
+    /**
+     * Drop the oldest queued notification to make room.
+     */
+    DROP_OLDEST,
+    /**
+     * Collapse the backlog into the new notification, for subscribers that only care about the latest state.
+     */
+    COALESCE
+}
@@ -0,0 +1,124 @@
+package org.swiftbotsample.cqrs.notifications;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One subscriber's bounded queue. Publishing never blocks; delivery runs on the notification executor,
+ * at most one drain at a time, so each subscriber sees notifications in order and a slow one only delays itself.
+ */
+public class Subscription {
+    private static final Logger LOGGER = Logger.getLogger(Subscription.class.getName());
+
+    private final Consumer<Notification> listener;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final Executor executor;
+
+    private final Queue<Notification> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private volatile boolean cancelled;
+
+    Subscription(Consumer<Notification> listener, int capacity, OverflowPolicy overflowPolicy, Executor executor) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.listener = listener;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.executor = executor;
+    }
+
+    void offer(Notification notification) {
+        if (cancelled) {
+            return;
+        }
+
+        if (depth.incrementAndGet() > capacity) {
+            switch (overflowPolicy) {
+                case DROP_NEWEST:
+                    depth.decrementAndGet();
+                    dropped.incrementAndGet();
+                    return;
+
+                case DROP_OLDEST:
+                    discard(1);
+                    break;
+
+                case COALESCE:
+                    discard(Integer.MAX_VALUE);
+                    break;
+            }
+        }
+
+        queue.offer(notification);
+        scheduleDrain();
+    }
+
+    private void discard(int max) {
+        for (int i = 0; i < max && queue.poll() != null; i++) {
+            depth.decrementAndGet();
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        Notification notification;
+        while (!cancelled && (notification = queue.poll()) != null) {
+            depth.decrementAndGet();
+            try {
+                listener.accept(notification);
+                delivered.incrementAndGet();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Notification subscriber failed", e);
+            }
+        }
+        draining.set(false);
+
+        //A notification may have arrived after the last poll but before the flag was cleared
+        if (!cancelled && !queue.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    void cancel() {
+        cancelled = true;
+        discard(Integer.MAX_VALUE);
+    }
+
+    Consumer<Notification> getListener() {
+        return listener;
+    }
+
+    public int getQueueDepth() {
+        return Math.max(0, depth.get());
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,148 @@
+package org.swiftbotsample.cqrs.processing;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Compile-time replacement for the classpath scan in {@code CommandRegistry}.
+ * Collects every {@code @CommandAttribute} command and every direct {@code CommandHandler<T>} subclass
+ * and writes them to {@link #INDEX_RESOURCE}, so the registry can load them without scanning at startup.
+ * <p>
+ * Index format, one entry per line:
+ * <pre>
+ * command &lt;command class&gt;
+ * handler &lt;handler class&gt; &lt;command class&gt;
+ * </pre>
+ * This class is compiled in its own pass (see pom.xml) and must not reference the rest of the framework.
+ */
+@SupportedAnnotationTypes("*")
+public class CommandIndexProcessor extends AbstractProcessor {
+    public static final String INDEX_RESOURCE = "META-INF/swiftbot/command.index";
+
+    private static final String COMMAND_ATTRIBUTE = "org.swiftbotsample.cqrs.annotations.CommandAttribute";
+    private static final String COMMAND = "org.swiftbotsample.cqrs.core.Command";
+    private static final String COMMAND_HANDLER = "org.swiftbotsample.cqrs.core.CommandHandler";
+
+    private final Set<String> commands = new TreeSet<>();
+    private final Map<String, String> handlers = new TreeMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeIndex();
+            return false;
+        }
+
+        TypeElement commandAttribute = processingEnv.getElementUtils().getTypeElement(COMMAND_ATTRIBUTE);
+        TypeElement command = processingEnv.getElementUtils().getTypeElement(COMMAND);
+        if (commandAttribute == null || command == null) {
+            //Nothing to index in a compilation unit that does not see the framework
+            return false;
+        }
+
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(commandAttribute))) {
+            if (processingEnv.getTypeUtils().isAssignable(type.asType(), processingEnv.getTypeUtils().erasure(command.asType()))) {
+                commands.add(binaryName(type));
+            } else {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        "@CommandAttribute type does not implement Command and will not be indexed", type);
+            }
+        }
+
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            collectHandlers(type);
+        }
+
+        //Never claim annotations, other processors may need them
+        return false;
+    }
+
+    private void collectHandlers(TypeElement type) {
+        if (type.getKind() == ElementKind.CLASS && !type.getModifiers().contains(Modifier.ABSTRACT)) {
+            String commandType = getHandledCommandType(type);
+            if (commandType != null) {
+                handlers.put(binaryName(type), commandType);
+            }
+        }
+
+        for (Element enclosed : type.getEnclosedElements()) {
+            if (enclosed instanceof TypeElement) {
+                collectHandlers((TypeElement) enclosed);
+            }
+        }
+    }
+
+    //Mirrors CommandRegistry's runtime rule: only direct, parameterized subclasses of CommandHandler are handlers
+    private String getHandledCommandType(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+
+        DeclaredType declaredSuperclass = (DeclaredType) superclass;
+        TypeElement superElement = (TypeElement) declaredSuperclass.asElement();
+        if (!superElement.getQualifiedName().contentEquals(COMMAND_HANDLER)
+                || declaredSuperclass.getTypeArguments().size() != 1) {
+            return null;
+        }
+
+        TypeMirror commandType = declaredSuperclass.getTypeArguments().get(0);
+        if (commandType.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        return binaryName((TypeElement) ((DeclaredType) commandType).asElement());
+    }
+
+    private String binaryName(TypeElement type) {
+        return processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    private void writeIndex() {
+        if (commands.isEmpty() && handlers.isEmpty()) {
+            return;
+        }
+
+        try {
+            FileObject resource = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_RESOURCE);
+            try (Writer writer = new OutputStreamWriter(resource.openOutputStream(), StandardCharsets.UTF_8)) {
+                writer.write("# Generated by " + CommandIndexProcessor.class.getSimpleName() + ". Do not edit.\n");
+                for (String command : commands) {
+                    writer.write("command " + command + "\n");
+                }
+                for (Map.Entry<String, String> handler : handlers.entrySet()) {
+                    writer.write("handler " + handler.getKey() + " " + handler.getValue() + "\n");
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Failed to write command index " + INDEX_RESOURCE + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.swiftbotsample.app;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.swiftbotsample.cqrs.core.ButtonMask;
+import swiftbot.Button;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChordRecognizerTest {
+    private static final long WINDOW = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final long DEBOUNCE = TimeUnit.MILLISECONDS.toNanos(30);
+
+    private final List<Integer> chords = new ArrayList<>();
+    private final List<Long> latencies = new ArrayList<>();
+    private long now;
+    private ChordRecognizer recognizer;
+
+    @BeforeEach
+    void setUp() {
+        //As in the app: A+B and X+Y are bound, so a single A or X may still grow into a chord
+        boolean[] complete = new boolean[ButtonMask.COMBINATIONS];
+        complete[ButtonMask.A | ButtonMask.B] = true;
+        complete[ButtonMask.X | ButtonMask.Y] = true;
+        recognizer = new ChordRecognizer(() -> now, WINDOW, DEBOUNCE, mask -> complete[mask], (mask, latency) -> {
+            chords.add(mask);
+            latencies.add(latency);
+        });
+    }
+
+    //The simulated button source: a press at the given time, with the clock moved there first
+    private void press(Button button, long atMillis) {
+        now = TimeUnit.MILLISECONDS.toNanos(atMillis);
+        recognizer.onPress(ButtonMask.indexOf(button), now);
+    }
+
+    private long advanceTo(long atMillis) {
+        now = TimeUnit.MILLISECONDS.toNanos(atMillis);
+        return recognizer.advance();
+    }
+
+    @Test
+    void incompleteChordFiresOnceWhenTheWindowCloses() {
+        press(Button.A, 0);
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1), advanceTo(499));
+        assertTrue(chords.isEmpty());
+
+        assertEquals(ChordRecognizer.IDLE, advanceTo(500));
+        assertEquals(ChordRecognizer.IDLE, advanceTo(800));
+        assertEquals(List.of(ButtonMask.A), chords);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), latencies.get(0));
+    }
+
+    @Test
+    void completeChordFiresImmediatelyAndOnlyOnce() {
+        press(Button.A, 0);
+        press(Button.B, 40);
+
+        assertEquals(List.of(ButtonMask.A | ButtonMask.B), chords);
+        assertEquals(0L, latencies.get(0));
+        assertEquals(ChordRecognizer.IDLE, advanceTo(600));
+        assertEquals(1, chords.size());
+        assertEquals(1, recognizer.getChordsRecognized());
+    }
+
+    @Test
+    void contactBounceIsIgnored() {
+        press(Button.X, 0);
+        press(Button.X, 5);
+        press(Button.X, 20);
+        advanceTo(500);
+
+        assertEquals(List.of(ButtonMask.X), chords);
+        assertEquals(2, recognizer.getPressesDebounced());
+    }
+
+    @Test
+    void pressAfterTheDebounceTimeJoinsTheOpenChord() {
+        press(Button.X, 0);
+        press(Button.X, 100);
+        advanceTo(500);
+
+        assertEquals(List.of(ButtonMask.X), chords);
+        assertEquals(0, recognizer.getPressesDebounced());
+    }
+
+    @Test
+    void stalePressIsFiredOnItsOwnBeforeTheNextChord() {
+        //The recognizer was not advanced in between, so the open chord is only noticed as stale on the next press
+        press(Button.A, 0);
+        press(Button.B, 700);
+
+        assertEquals(List.of(ButtonMask.A), chords);
+
+        advanceTo(1200);
+        assertEquals(List.of(ButtonMask.A, ButtonMask.B), chords);
+    }
+
+    @Test
+    void sameButtonCanStartANewChordAfterTheLastOneFired() {
+        press(Button.A, 0);
+        press(Button.B, 10);
+        press(Button.A, 20);
+        press(Button.B, 30);
+
+        assertEquals(List.of(ButtonMask.A | ButtonMask.B), chords);
+        assertEquals(2, recognizer.getPressesDebounced());
+
+        press(Button.A, 200);
+        press(Button.B, 210);
+        assertEquals(List.of(ButtonMask.A | ButtonMask.B, ButtonMask.A | ButtonMask.B), chords);
+    }
+}
@@ -0,0 +1,74 @@
+package org.swiftbotsample.app.camera;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.swiftbotsample.app.hardware.BotHardware;
+import org.swiftbotsample.app.hardware.SimulatedBot;
+import swiftbot.ImageSize;
+
+import java.awt.image.BufferedImage;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrameBrokerTest {
+    private static final long INTERVAL = 20; //ms
+    private static final long TIMEOUT = 2000; //ms
+
+    private final List<BufferedImage> grayscaleStills = new CopyOnWriteArrayList<>();
+    private final AtomicInteger colorStills = new AtomicInteger();
+    private FrameBroker broker;
+
+    @BeforeEach
+    void setUp() {
+        //The simulator as camera, recording which kind of still the broker asked for
+        SimulatedBot bot = SimulatedBot.withDefaultArena(1);
+        BotHardware camera = (BotHardware) Proxy.newProxyInstance(BotHardware.class.getClassLoader(),
+                new Class<?>[]{BotHardware.class}, (proxy, method, args) -> {
+                    Object result = method.invoke(bot, args);
+                    if (method.getName().equals("takeGrayscaleStill")) {
+                        grayscaleStills.add((BufferedImage) result);
+                    } else if (method.getName().equals("takeStill")) {
+                        colorStills.incrementAndGet();
+                    }
+                    return result;
+                });
+        broker = new FrameBroker(camera, ImageSize.SQUARE_480x480);
+    }
+
+    @Test
+    void visionSeesTheCameraGrayscaleWhileAColorViewerWatches() throws InterruptedException {
+        try (FrameBroker.Subscription vision = broker.subscribe(INTERVAL, false);
+             FrameBroker.Subscription viewer = broker.subscribe(INTERVAL, true)) {
+            for (int i = 0; i < 5; i++) {
+                try (Frame frame = vision.awaitNext(TIMEOUT)) {
+                    assertNotNull(frame);
+                    BufferedImage gray = frame.getGrayscale();
+                    //The very image the camera returned, so detection matches a direct grayscale still exactly
+                    assertTrue(grayscaleStills.stream().anyMatch(still -> still == gray),
+                            "Frame was converted instead of taken as a grayscale still");
+                }
+                try (Frame frame = viewer.awaitNext(TIMEOUT)) {
+                    assertNotNull(frame);
+                }
+            }
+        }
+        assertEquals(0, colorStills.get());
+    }
+
+    @Test
+    void colorViewerAloneGetsColorFrames() throws InterruptedException {
+        try (FrameBroker.Subscription viewer = broker.subscribe(INTERVAL, true);
+             Frame frame = viewer.awaitNext(TIMEOUT)) {
+            assertNotNull(frame);
+            assertNotEquals(BufferedImage.TYPE_BYTE_GRAY, frame.getImage().getType());
+        }
+        assertTrue(grayscaleStills.isEmpty());
+    }
+}
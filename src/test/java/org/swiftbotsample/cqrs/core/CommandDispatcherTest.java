@@ -0,0 +1,174 @@
+package org.swiftbotsample.cqrs.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.swiftbotsample.cqrs.annotations.ConcurrencyPolicy;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandDispatcherTest {
+    private static final long WAIT_SECONDS = 5;
+
+    private final CommandDispatcher dispatcher = new CommandDispatcher();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    static final class FirstCommand implements Command {
+    }
+
+    static final class SecondCommand implements Command {
+    }
+
+    //Runs the given body as the handler of any command type
+    static <T extends Command> CommandHandler<T> handler(HandlerBody body) {
+        return new CommandHandler<>() {
+            @Override
+            public void handle(T command, CancellationToken cancellation) throws InterruptedException {
+                body.run(cancellation);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    interface HandlerBody {
+        void run(CancellationToken cancellation) throws InterruptedException;
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        dispatcher.shutdown();
+    }
+
+    //Occupies the worker until the test releases it or the command is cancelled
+    private CompletableFuture<Void> dispatchBlocking(Command command, ConcurrencyPolicy policy) {
+        return dispatcher.dispatch(command, handler(token -> {
+            while (!token.isCancellationRequested() && !release.await(10, TimeUnit.MILLISECONDS)) {
+                //Keep waiting
+            }
+        }), policy, 0);
+    }
+
+    private static Throwable failureOf(CompletableFuture<Void> future) throws Exception {
+        Throwable failure = future.handle((result, error) -> error).get(WAIT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(failure, "expected the command to fail");
+        return failure;
+    }
+
+    @Test
+    void queuedCommandsRunInOrder() throws Exception {
+        List<String> order = new CopyOnWriteArrayList<>();
+        dispatchBlocking(new FirstCommand(), ConcurrencyPolicy.QUEUE);
+        CompletableFuture<Void> a = dispatcher.dispatch(new SecondCommand(), handler(token -> order.add("a")),
+                ConcurrencyPolicy.QUEUE, 0);
+        CompletableFuture<Void> b = dispatcher.dispatch(new SecondCommand(), handler(token -> order.add("b")),
+                ConcurrencyPolicy.QUEUE, 0);
+        assertEquals(2, dispatcher.getQueueDepth());
+
+        release.countDown();
+        CompletableFuture.allOf(a, b).get(WAIT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(List.of("a", "b"), order);
+    }
+
+    @Test
+    void exclusiveRejectsASecondInstance() throws Exception {
+        dispatchBlocking(new FirstCommand(), ConcurrencyPolicy.EXCLUSIVE);
+        CompletableFuture<Void> duplicate = dispatcher.dispatch(new FirstCommand(), handler(token -> { }),
+                ConcurrencyPolicy.EXCLUSIVE, 0);
+        CompletableFuture<Void> other = dispatcher.dispatch(new SecondCommand(), handler(token -> { }),
+                ConcurrencyPolicy.EXCLUSIVE, 0);
+
+        assertInstanceOf(RejectedExecutionException.class, failureOf(duplicate));
+        release.countDown();
+        other.get(WAIT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void dropIfBusyRejectsWhileAnotherCommandRuns() throws Exception {
+        dispatchBlocking(new FirstCommand(), ConcurrencyPolicy.QUEUE);
+        CompletableFuture<Void> dropped = dispatcher.dispatch(new SecondCommand(), handler(token -> { }),
+                ConcurrencyPolicy.DROP_IF_BUSY, 0);
+
+        assertInstanceOf(RejectedExecutionException.class, failureOf(dropped));
+        assertEquals(0, dispatcher.getQueueDepth());
+    }
+
+    @Test
+    void preemptCancelsTheRunningCommandAndRunsFirst() throws Exception {
+        List<String> order = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> running = dispatchBlocking(new FirstCommand(), ConcurrencyPolicy.QUEUE);
+        CompletableFuture<Void> queued = dispatcher.dispatch(new FirstCommand(), handler(token -> order.add("queued")),
+                ConcurrencyPolicy.QUEUE, 0);
+        CompletableFuture<Void> preempting = dispatcher.dispatch(new SecondCommand(),
+                handler(token -> order.add("preempting")), ConcurrencyPolicy.PREEMPT, 0);
+
+        assertInstanceOf(CancellationException.class, failureOf(running));
+        CompletableFuture.allOf(queued, preempting).get(WAIT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(List.of("preempting", "queued"), order);
+    }
+
+    @Test
+    void timeoutFailsTheFutureAndCancelsTheToken() throws Exception {
+        CountDownLatch tokenCancelled = new CountDownLatch(1);
+        CompletableFuture<Void> slow = dispatcher.dispatch(new FirstCommand(), handler(token -> {
+            token.onCancel(tokenCancelled::countDown);
+            token.sleep(TimeUnit.SECONDS.toMillis(WAIT_SECONDS));
+        }), ConcurrencyPolicy.QUEUE, 50);
+
+        assertInstanceOf(TimeoutException.class, failureOf(slow));
+        assertTrue(tokenCancelled.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        dispatcher.dispatch(new SecondCommand(), handler(token -> { }), ConcurrencyPolicy.QUEUE, 0)
+                .get(WAIT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void cancelActiveReportsWhetherACommandWasRunning() throws Exception {
+        assertFalse(dispatcher.cancelActive());
+        CompletableFuture<Void> running = dispatchBlocking(new FirstCommand(), ConcurrencyPolicy.QUEUE);
+        assertTrue(dispatcher.cancelActive());
+        assertInstanceOf(CancellationException.class, failureOf(running));
+    }
+
+    @Test
+    void cancelRightAfterDispatchDoesNotStallTheQueue() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            CompletableFuture<Void> first = dispatcher.dispatch(new FirstCommand(), handler(token -> { }),
+                    ConcurrencyPolicy.QUEUE, 0);
+            dispatcher.cancelActive();
+            CompletableFuture<Void> second = dispatcher.dispatch(new SecondCommand(), handler(token -> { }),
+                    ConcurrencyPolicy.QUEUE, 0);
+
+            second.get(WAIT_SECONDS, TimeUnit.SECONDS);
+            assertTrue(first.isDone());
+        }
+        assertEquals(0, dispatcher.getQueueDepth());
+    }
+
+    @Test
+    void cancelledCommandBeforeStartNeverReachesItsHandler() throws Exception {
+        CountDownLatch secondRan = new CountDownLatch(1);
+        dispatcher.dispatch(new FirstCommand(), handler(token -> release.await()), ConcurrencyPolicy.QUEUE, 0);
+        CompletableFuture<Void> second = dispatcher.dispatch(new SecondCommand(),
+                handler(token -> secondRan.countDown()), ConcurrencyPolicy.QUEUE, 0);
+
+        assertTrue(dispatcher.cancel(SecondCommand.class));
+        release.countDown();
+
+        assertTrue(second.isCompletedExceptionally());
+        dispatcher.dispatch(new FirstCommand(), handler(token -> { }), ConcurrencyPolicy.QUEUE, 0)
+                .get(WAIT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(1, secondRan.getCount());
+    }
+}